@@ -71,28 +71,13 @@ public class AddPartController implements Initializable {
         partIdNameLabel.setText("Machine ID");
     }
 
-    /**
-     * Retrieves the next available part ID by finding the highest ID among all existing parts and incrementing it.
-     *
-     * @return The next available part ID.
-     */
-    private int getNextPartId() {
-        int maxId = 0;
-        for (Part part : Model.Inventory.getAllParts()) {
-            if (part.getId() > maxId) {
-                maxId = part.getId();
-            }
-        }
-        return maxId + 1;
-    }
-
     /**
      * Adds the specified part to the list of all parts.
      *
      * @param newPart The part to be added.
      */
     public void addPart(Part newPart) {
-        Model.Inventory.getAllParts().add(newPart);
+        Model.Inventory.addPart(newPart);
     }
 
     /**
@@ -116,11 +101,11 @@ public class AddPartController implements Initializable {
             // Create a new part based on whether the in-house or outsourced radio button is selected
             if (inHouseRadioButton.isSelected()) {
                 int machineId = Integer.parseInt(labelTextField.getText());
-                InHouse newPart = new InHouse(getNextPartId(), name, price, stock, min, max, machineId);
+                InHouse newPart = new InHouse(getNewPartId(), name, price, stock, min, max, machineId);
                 addPart(newPart);
             } else if (outsourcedRadioButton.isSelected()) {
                 String companyName = labelTextField.getText();
-                Outsourced newPart = new Outsourced(getNextPartId(), name, price, stock, min, max, companyName);
+                Outsourced newPart = new Outsourced(getNewPartId(), name, price, stock, min, max, companyName);
                 addPart(newPart);
             }}
 
@@ -164,7 +149,7 @@ public class AddPartController implements Initializable {
 
         boolean isValid = true;
 
-        if (min <= 0 || min >= max) {
+        if (!isMinValid(min, max)) {
             isValid = false;
             displayAlert(3);
         }
@@ -183,7 +168,7 @@ public class AddPartController implements Initializable {
 
         boolean isValid = true;
 
-        if (stock < min || stock > max) {
+        if (!isInventoryValid(min, max, stock)) {
             isValid = false;
             displayAlert(4);
         }
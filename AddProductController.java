@@ -30,6 +30,7 @@ import static Model.Inventory.getAllParts;
 public class AddProductController implements Initializable {
 
     private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private TableSearch<Part> partSearch;
     @FXML private TableView<Part> associatedPartTableView;
     @FXML private TableColumn<Part, Integer> associatedPartIdColumn;
     @FXML private TableColumn<Part, String> associatedPartNameColumn;
@@ -61,21 +62,6 @@ public class AddProductController implements Initializable {
     }
 
 
-    /**
-     * Returns the next available product ID by iterating over all existing products in the inventory and
-     * finding the maximum ID.
-     *
-     * @return The next available product ID.
-     */
-    private int getNextProductId() {
-        int maxId = 0;
-        for (Product product : Model.Inventory.getAllProducts()) {
-            if (product.getId() > maxId) {
-                maxId = product.getId();
-            }
-        }
-        return maxId + 1;
-    }
     /**
      * Adds the selected part to the associated parts list for the current product.
      *
@@ -116,30 +102,24 @@ public class AddProductController implements Initializable {
         }
     }
     /**
-     * Updates the part table view based on the search string entered in the search text field.
-     * Displays an alert if no parts match the search string.
+     * Called when Enter is pressed in the search text field. Searches straight away instead of waiting for typing
+     * to pause, and displays an alert if no parts match the search string.
      *
      * @param event the event object representing the text field change
      */
     @FXML
     void onSearchPartsTextFieldChanged(ActionEvent event) {
 
-        ObservableList<Part> allParts = Inventory.getAllParts();
-        ObservableList<Part> partsFound = FXCollections.observableArrayList();
-        String searchString = partSearchText.getText();
-
-        for (Part part : allParts) {
-            if (String.valueOf(part.getId()).contains(searchString) ||
-                    part.getName().contains(searchString)) {
-                partsFound.add(part);
-            }
-        }
-
-        partTableView.setItems(partsFound);
+        searchParts(true);
+    }
 
-        if (partsFound.size() == 0) {
-            displayAlert(2);
-        }
+    /**
+     * Looks the search string up in the inventory's search index in the background and shows only the parts whose ID
+     * or name contains it exactly as typed in the part table view. An empty search string shows all parts.
+     * @param now true to search straight away, false to wait for typing to pause
+     */
+    private void searchParts(boolean now) {
+        partSearch.search(partSearchText.getText(), now);
     }
     /**
      * Handles the key pressed event of the part search text field. Resets the part table view to show
@@ -151,7 +131,7 @@ public class AddProductController implements Initializable {
     void onPartSearchKeyClicked(KeyEvent event) {
 
         if (partSearchText.getText().isEmpty()) {
-            partTableView.setItems(Inventory.getAllParts());
+            partSearch.clear();
         }
     }
     /**
@@ -204,13 +184,12 @@ public class AddProductController implements Initializable {
             } else {
                 if (minValid(min, max) && inventoryValid(min, max, stock)) {
 
-                    Product newProduct = new Product(getNextProductId(), name, price, stock, min, max);
+                    Product newProduct = new Product(Inventory.getNewProductId(), name, price, stock, min, max);
 
                     for (Part part : associatedParts) {
                         newProduct.addAssociatedPart(part);
                     }
 
-                    newProduct.setId(Inventory.getNewProductId());
                     Inventory.addProduct(newProduct);
                     //returnToMainScreen(event);
                     Stage stage = (Stage) saveProductButton.getScene().getWindow();
@@ -247,7 +226,7 @@ public class AddProductController implements Initializable {
 
         boolean isValid = true;
 
-        if (min <= 0 || min >= max) {
+        if (!Inventory.isMinValid(min, max)) {
             isValid = false;
             displayAlert(3);
         }
@@ -266,7 +245,7 @@ public class AddProductController implements Initializable {
 
         boolean isValid = true;
 
-        if (stock < min || stock > max) {
+        if (!Inventory.isInventoryValid(min, max, stock)) {
             isValid = false;
             displayAlert(4);
         }
@@ -332,7 +311,9 @@ public class AddProductController implements Initializable {
         partNameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
         partInventoryColumn.setCellValueFactory(new PropertyValueFactory<>("stock"));
         partPriceColumn.setCellValueFactory(new PropertyValueFactory<>("price"));
-        partTableView.setItems(Inventory.getAllParts());
+        partSearch = new TableSearch<>(partTableView, Inventory.getAllParts(), TableSearch::partsContaining,
+                () -> displayAlert(2));
+        partSearchText.textProperty().addListener((observable, oldText, newText) -> searchParts(false));
 
 
         associatedPartIdColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
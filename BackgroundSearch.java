@@ -0,0 +1,101 @@
+package com.example.softwaretry2;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the query behind a search field on a worker thread, so typing never waits for a search.
+ * Each keystroke restarts a short delay and the query only runs once typing pauses. A newer search cancels the one
+ * before it: a query that has not started is dropped, a running one is interrupted, and the result of a query that
+ * finishes anyway is thrown away. Only the result of the latest search is handed back, on the JavaFX Application
+ * Thread. The methods must be called on the JavaFX Application Thread.
+ *
+ * @param <R> the type of a search result
+ */
+final class BackgroundSearch<R> {
+
+    /** How long typing must pause before a search runs. */
+    static final long DEBOUNCE_MILLIS = 150;
+
+    private static final ScheduledThreadPoolExecutor workers = createWorkers();
+
+    private final Function<String, R> query;
+    private final Consumer<R> publisher;
+    private final AtomicLong latest = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Creates a search.
+     * @param query runs the search for a term on a worker thread; it should give up if the thread is interrupted
+     * @param publisher receives the result of the latest search on the JavaFX Application Thread
+     */
+    BackgroundSearch(Function<String, R> query, Consumer<R> publisher) {
+        this.query = query;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Searches for a term once typing pauses, cancelling any earlier search.
+     * @param term the term to search for
+     */
+    void search(String term) {
+        submit(term, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Searches for a term straight away, cancelling any earlier search, for example when Enter is pressed.
+     * @param term the term to search for
+     */
+    void searchNow(String term) {
+        submit(term, 0);
+    }
+
+    /**
+     * Cancels the current search, if any, so its result is never published.
+     */
+    void cancel() {
+        latest.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private void submit(String term, long delayMillis) {
+        cancel();
+        long generation = latest.get();
+        pending = workers.schedule(() -> run(term, generation), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(String term, long generation) {
+        if (generation != latest.get()) {
+            return;
+        }
+        R result = query.apply(term);
+        if (generation != latest.get()) {
+            return;
+        }
+        Platform.runLater(() -> {
+            if (generation == latest.get()) {
+                publisher.accept(result);
+            }
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor createWorkers() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "inventory-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,115 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * The result of a BuildPlanner run: how many units of each product can be built.
+ */
+public class BuildPlan {
+
+    private final BuildPlanner.Mode mode;
+    private final List<Line> lines;
+    private final List<Part> contendedParts;
+    private final long elapsedNanos;
+
+    BuildPlan(BuildPlanner.Mode mode, List<Line> lines, List<Part> contendedParts, long elapsedNanos) {
+        this.mode = mode;
+        this.lines = lines;
+        this.contendedParts = contendedParts;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns how shared stock was treated.
+     * @return the planning mode
+     */
+    public BuildPlanner.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns one line per product, in the order of the inventory's product list.
+     * @return the lines of the plan
+     */
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the parts that cannot cover every product building as much as it could alone.
+     * @return the contended parts
+     */
+    public List<Part> getContendedParts() {
+        return contendedParts;
+    }
+
+    /**
+     * Returns the total number of units across all products.
+     * @return the units planned
+     */
+    public long getTotalUnits() {
+        long total = 0;
+        for (Line line : lines) {
+            total += line.getQuantity();
+        }
+        return total;
+    }
+
+    /**
+     * Returns how long the plan took to compute.
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * The plan for one product.
+     */
+    public static final class Line {
+
+        private final Product product;
+        private final int quantity;
+        private final int independentQuantity;
+        private final Part limitingPart;
+
+        Line(Product product, int quantity, int independentQuantity, Part limitingPart) {
+            this.product = product;
+            this.quantity = quantity;
+            this.independentQuantity = independentQuantity;
+            this.limitingPart = limitingPart;
+        }
+
+        /**
+         * Returns the product.
+         * @return the product
+         */
+        public Product getProduct() {
+            return product;
+        }
+
+        /**
+         * Returns the number of units planned. A product with no associated parts is planned at 0.
+         * @return the buildable quantity
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * Returns the number of units that could be built if no other product used the same parts.
+         * @return the quantity the product could build alone
+         */
+        public int getIndependentQuantity() {
+            return independentQuantity;
+        }
+
+        /**
+         * Returns the part whose stock limits the product when it is built alone.
+         * @return the limiting part, or null if the product has no associated parts
+         */
+        public Part getLimitingPart() {
+            return limitingPart;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Works out how many units of each product can be built from the parts in stock.
+ * The planner takes a consistent snapshot of every product's associated parts and of the stock of those parts, then
+ * computes over the snapshot on a fork/join pool without holding the Inventory's lock. A product that lists a part
+ * more than once needs that many of it per unit.
+ *
+ * In INDEPENDENT mode each product is planned as if it were the only one being built, which is a fast upper bound
+ * computed in a single parallel pass. Products that share a part cannot all reach their bound at once, so ALLOCATED
+ * mode divides contended stock between them instead: the quantities of all products are raised together until a
+ * part runs out, the products that need that part stop, the rest carry on, and whatever stock is left at the end is
+ * handed out one unit at a time. Every product in an ALLOCATED plan can be built at the same time.
+ */
+public class BuildPlanner {
+
+    /**
+     * How stock shared between products is treated.
+     */
+    public enum Mode {
+        /** Every product may use all of the stock of its parts. */
+        INDEPENDENT,
+        /** The stock of each part is divided between the products that use it. */
+        ALLOCATED
+    }
+
+    private static final int THRESHOLD = 512;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a planner that runs on the common fork/join pool.
+     */
+    public BuildPlanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a planner that runs on the given pool.
+     * @param pool the pool to compute on
+     */
+    public BuildPlanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Plans every product in the inventory.
+     * @param mode how shared stock is treated
+     * @return the plan
+     */
+    public BuildPlan plan(Mode mode) {
+        long start = System.nanoTime();
+        Snapshot snapshot = Inventory.readState((parts, products) -> new Snapshot(products));
+        int count = snapshot.products.length;
+        int[] bounds = new int[count];
+        int[] limiting = new int[count];
+        forEach(count, j -> {
+            int[] uses = snapshot.uses[j];
+            int[] perUnit = snapshot.perUnit[j];
+            int best = uses.length == 0 ? 0 : Integer.MAX_VALUE;
+            int limit = -1;
+            for (int i = 0; i < uses.length; i++) {
+                int possible = snapshot.stock[uses[i]] / perUnit[i];
+                if (possible < best) {
+                    best = possible;
+                    limit = uses[i];
+                }
+            }
+            bounds[j] = best;
+            limiting[j] = limit;
+        });
+
+        int[] quantities = mode == Mode.ALLOCATED ? allocate(snapshot, bounds) : bounds;
+
+        long[] demand = new long[snapshot.parts.length];
+        for (int j = 0; j < count; j++) {
+            int[] uses = snapshot.uses[j];
+            for (int i = 0; i < uses.length; i++) {
+                demand[uses[i]] += (long) bounds[j] * snapshot.perUnit[j][i];
+            }
+        }
+        List<Part> contended = new ArrayList<>();
+        for (int p = 0; p < demand.length; p++) {
+            if (demand[p] > snapshot.stock[p]) {
+                contended.add(snapshot.parts[p]);
+            }
+        }
+
+        List<BuildPlan.Line> lines = new ArrayList<>(count);
+        for (int j = 0; j < count; j++) {
+            lines.add(new BuildPlan.Line(snapshot.products[j], quantities[j], bounds[j],
+                    limiting[j] < 0 ? null : snapshot.parts[limiting[j]]));
+        }
+        return new BuildPlan(mode, Collections.unmodifiableList(lines), Collections.unmodifiableList(contended),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Divides the stock between the products by progressive filling.
+     */
+    private int[] allocate(Snapshot snapshot, int[] bounds) {
+        int count = snapshot.products.length;
+        long[] remaining = new long[snapshot.stock.length];
+        for (int p = 0; p < remaining.length; p++) {
+            remaining[p] = snapshot.stock[p];
+        }
+        int[] allocated = new int[count];
+        boolean[] active = new boolean[count];
+        int activeCount = 0;
+        for (int j = 0; j < count; j++) {
+            if (bounds[j] > 0) {
+                active[j] = true;
+                activeCount++;
+            }
+        }
+        long[] demand = new long[remaining.length];
+        while (activeCount > 0) {
+            Arrays.fill(demand, 0);
+            for (int j = 0; j < count; j++) {
+                if (active[j]) {
+                    int[] uses = snapshot.uses[j];
+                    for (int i = 0; i < uses.length; i++) {
+                        demand[uses[i]] += snapshot.perUnit[j][i];
+                    }
+                }
+            }
+            long step = Integer.MAX_VALUE;
+            for (int p = 0; p < demand.length; p++) {
+                if (demand[p] > 0) {
+                    step = Math.min(step, remaining[p] / demand[p]);
+                }
+            }
+            if (step > 0) {
+                int units = (int) step;
+                for (int p = 0; p < demand.length; p++) {
+                    remaining[p] -= units * demand[p];
+                }
+                forEach(count, j -> {
+                    if (active[j]) {
+                        allocated[j] += units;
+                    }
+                });
+            }
+            boolean[] stopped = new boolean[count];
+            forEach(count, j -> {
+                if (active[j] && !canBuildOne(snapshot, j, remaining)) {
+                    stopped[j] = true;
+                }
+            });
+            int stoppedCount = 0;
+            for (int j = 0; j < count; j++) {
+                if (stopped[j]) {
+                    active[j] = false;
+                    stoppedCount++;
+                }
+            }
+            activeCount -= stoppedCount;
+            if (step == 0 && stoppedCount == 0) {
+                // every active product could still build one more unit alone, but not all of them together
+                for (int j = 0; j < count; j++) {
+                    if (!active[j]) {
+                        continue;
+                    }
+                    if (canBuildOne(snapshot, j, remaining)) {
+                        int[] uses = snapshot.uses[j];
+                        for (int i = 0; i < uses.length; i++) {
+                            remaining[uses[i]] -= snapshot.perUnit[j][i];
+                        }
+                        allocated[j]++;
+                    } else {
+                        active[j] = false;
+                        activeCount--;
+                    }
+                }
+            }
+        }
+        return allocated;
+    }
+
+    private static boolean canBuildOne(Snapshot snapshot, int product, long[] remaining) {
+        int[] uses = snapshot.uses[product];
+        for (int i = 0; i < uses.length; i++) {
+            if (remaining[uses[i]] < snapshot.perUnit[product][i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the body for every index below count, splitting the range across the pool.
+     */
+    private void forEach(int count, IntConsumer body) {
+        pool.invoke(new RangeAction(0, count, body));
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        RangeAction(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, middle, body), new RangeAction(middle, to, body));
+        }
+    }
+
+    /**
+     * The products and the stock of their parts at one moment, with every part numbered.
+     */
+    private static final class Snapshot {
+        final Product[] products;
+        final Part[] parts;
+        final int[] stock;
+        /** For each product, the numbers of the distinct parts it uses. */
+        final int[][] uses;
+        /** For each product, how many of each of those parts one unit needs. */
+        final int[][] perUnit;
+
+        Snapshot(List<Product> productList) {
+            products = productList.toArray(new Product[0]);
+            uses = new int[products.length][];
+            perUnit = new int[products.length][];
+            Map<Part, Integer> numbers = new IdentityHashMap<>();
+            List<Part> partList = new ArrayList<>();
+            for (int j = 0; j < products.length; j++) {
+                List<Part> associated = products[j].getAllAssociatedParts();
+                int[] used = new int[associated.size()];
+                int[] needed = new int[associated.size()];
+                int distinct = 0;
+                for (Part part : associated) {
+                    Integer number = numbers.get(part);
+                    if (number == null) {
+                        number = partList.size();
+                        numbers.put(part, number);
+                        partList.add(part);
+                    }
+                    int k = 0;
+                    while (k < distinct && used[k] != number) {
+                        k++;
+                    }
+                    if (k == distinct) {
+                        used[distinct++] = number;
+                    }
+                    needed[k]++;
+                }
+                uses[j] = Arrays.copyOf(used, distinct);
+                perUnit[j] = Arrays.copyOf(needed, distinct);
+            }
+            parts = partList.toArray(new Part[0]);
+            stock = new int[parts.length];
+            for (int p = 0; p < parts.length; p++) {
+                stock[p] = Math.max(0, parts[p].getStock());
+            }
+        }
+    }
+}
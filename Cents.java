@@ -0,0 +1,30 @@
+package Model;
+
+/**
+ * Converts amounts of money to and from a whole number of cents.
+ * Running totals are kept in cents so that taking off exactly what was added leaves the total exactly as it was;
+ * a total kept as a double picks up rounding error with every change and drifts further the longer it runs.
+ */
+final class Cents {
+
+    private Cents() {
+    }
+
+    /**
+     * Rounds an amount to the nearest cent.
+     * @param amount the amount
+     * @return the amount in cents
+     */
+    static long of(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Converts a number of cents back to an amount.
+     * @param cents the amount in cents
+     * @return the amount
+     */
+    static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,84 @@
+package Model;
+
+/**
+ * Keeps the material cost of every product in the inventory, the sum of the prices of its associated parts, up to
+ * date as parts and associations change.
+ * A change only recomputes the products it can affect: an association change recomputes its product, and a part
+ * price change recomputes the products that the usage index says list that part. Each recomputation walks the
+ * product's own association list, so costs never drift however many changes are applied. The total over all
+ * products is kept alongside so a dashboard can read it without visiting any product; it is kept in whole cents,
+ * so taking a product's old cost off and adding its new one never leaves rounding error behind.
+ * Not thread-safe; the Inventory only uses it while holding its lock.
+ */
+class CostRollup {
+
+    private long totalMaterialCents;
+
+    /**
+     * Computes the material cost of a product from its associated parts.
+     * @param product the product
+     * @return the sum of the prices of the product's associated parts
+     */
+    static double materialCost(Product product) {
+        double cost = 0;
+        for (Part part : product.getAllAssociatedParts()) {
+            cost += part.getPrice();
+        }
+        return cost;
+    }
+
+    /**
+     * Starts tracking a product that has been added to the inventory.
+     * @param product the product
+     */
+    void add(Product product) {
+        double cost = materialCost(product);
+        product.setMaterialCost(cost);
+        totalMaterialCents += Cents.of(cost);
+    }
+
+    /**
+     * Stops tracking a product that has been removed from the inventory.
+     * @param product the product
+     */
+    void remove(Product product) {
+        totalMaterialCents -= Cents.of(product.getMaterialCost());
+    }
+
+    /**
+     * Recomputes the material cost of a product in the inventory.
+     * @param product the product
+     * @return the material cost before it was recomputed
+     */
+    double recompute(Product product) {
+        double oldCost = product.getMaterialCost();
+        double cost = materialCost(product);
+        product.setMaterialCost(cost);
+        totalMaterialCents += Cents.of(cost) - Cents.of(oldCost);
+        return oldCost;
+    }
+
+    /**
+     * Returns whether a product lists a particular part object, and so has to be recomputed when its price changes.
+     * Products found through the usage index may instead list an older part object that carries the same ID.
+     * @param product the product
+     * @param part the part
+     * @return true if the product lists the part
+     */
+    static boolean lists(Product product, Part part) {
+        for (Part listed : product.getAllAssociatedParts()) {
+            if (listed == part) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the sum of the material costs of every product in the inventory, each rounded to the cent.
+     * @return the total material cost
+     */
+    double getTotalMaterialCost() {
+        return Cents.toAmount(totalMaterialCents);
+    }
+}
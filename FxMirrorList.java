@@ -0,0 +1,471 @@
+package Model;
+
+import javafx.application.Platform;
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An ObservableList that mirrors one of the Inventory's lists on the JavaFX Application Thread.
+ * The Inventory queues every change it makes to its own list here, from whichever thread made it, and the queue is
+ * replayed on the FX thread. All changes queued between two replays are published to listeners as one change, so a
+ * background job adding thousands of rows costs the bound tables one update instead of thousands. Nothing is queued
+ * until the list is first handed out, so a headless service that never asks for it pays nothing for it; when the
+ * JavaFX runtime is not running, queued changes are replayed on the calling thread instead.
+ * Changes to the fields of an item already in the list are published as update changes at the item's position, so a
+ * bound table redraws only the changed rows. The positions are looked up in an identity map that is built on the
+ * first update and kept up to date from then on. A removed item leaves an empty slot behind rather than shifting the
+ * items after it, so the slots recorded in the map stay valid; a Fenwick tree over the slots turns a slot into a
+ * position and back in logarithmic time, and the empty slots are squeezed out once they outnumber the items.
+ * The list cannot be modified directly; every change must go through the Inventory.
+ * @param <T> the type of item in the list
+ */
+public class FxMirrorList<T> extends ModifiableObservableListBase<T> {
+
+    private static final int ADD = 0;
+    private static final int SET = 1;
+    private static final int REMOVE = 2;
+    private static final int REMOVE_ALL = 3;
+    private static final int UPDATE = 4;
+
+    /**
+     * Set once a task has been posted to the FX thread successfully. Until then the JavaFX toolkit may not be
+     * running, and asking it which thread is the FX thread would try to start it.
+     */
+    private static volatile boolean fxRunning;
+    /** Set once posting a task has failed because the JavaFX toolkit is not running, so it is not tried again. */
+    private static volatile boolean fxMissing;
+
+    private static final int MIN_SLOTS = 16;
+
+    /** The items by slot, with null in the slots of removed items. */
+    private Object[] slots = new Object[MIN_SLOTS];
+    private int slotCount;
+    private int size;
+    /** A Fenwick tree counting the items in the slots, indexed from 1. */
+    private int[] tree = new int[MIN_SLOTS + 1];
+    private final Object queueLock = new Object();
+    private final Object applyLock = new Object();
+    private List<Op<T>> pending = new ArrayList<>();
+    /** Set once the list has been handed out; until then no changes are queued. */
+    private volatile boolean mirroring;
+    private boolean scheduled;
+    private boolean applying;
+    /** The slot of each item, or null until the first update. Only touched while applying changes. */
+    private Map<T, Integer> positions;
+
+    /**
+     * Returns whether the list follows the Inventory's list yet.
+     * @return true once startMirroring has been called
+     */
+    boolean isMirroring() {
+        return mirroring;
+    }
+
+    /**
+     * Starts following the Inventory's list, beginning with the items it holds now, and publishes them. Must be
+     * called while the Inventory's list cannot change. Does nothing if the list is already mirroring.
+     * @param items the items in the Inventory's list
+     */
+    void startMirroring(List<T> items) {
+        synchronized (queueLock) {
+            if (mirroring) {
+                return;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                pending.add(new Op<>(ADD, i, items.get(i)));
+            }
+            mirroring = true;
+        }
+        publish();
+    }
+
+    /**
+     * Queues the insertion of an item at the given index.
+     * @param index the index in the Inventory's list
+     * @param item the inserted item
+     */
+    void queueAdd(int index, T item) {
+        queue(new Op<>(ADD, index, item));
+    }
+
+    /**
+     * Queues the replacement of the item at the given index.
+     * @param index the index in the Inventory's list
+     * @param item the new item
+     */
+    void queueSet(int index, T item) {
+        queue(new Op<>(SET, index, item));
+    }
+
+    /**
+     * Queues the removal of the item at the given index.
+     * @param index the index in the Inventory's list
+     */
+    void queueRemove(int index) {
+        queue(new Op<>(REMOVE, index, null));
+    }
+
+    /**
+     * Queues the removal of several items at once, which is applied in one pass over the list however many items
+     * are removed.
+     * @param indices the indexes of the removed items in the Inventory's list before any of them were removed,
+     *                in ascending order
+     */
+    void queueRemoveAll(int[] indices) {
+        queue(new Op<>(indices));
+    }
+
+    /**
+     * Queues an update for an item whose fields have changed. Nothing is published if the item has left the list
+     * by the time the update is applied.
+     * @param item the changed item
+     */
+    void queueUpdate(T item) {
+        queue(new Op<>(UPDATE, -1, item));
+    }
+
+    /**
+     * Makes sure the queued changes get applied: right away on the FX thread or when JavaFX is not running,
+     * and otherwise in a single task posted to the FX thread.
+     */
+    void publish() {
+        if (!mirroring) {
+            return;
+        }
+        if (fxMissing) {
+            drain();
+            return;
+        }
+        if (fxRunning && Platform.isFxApplicationThread()) {
+            drain();
+            return;
+        }
+        synchronized (queueLock) {
+            if (scheduled || pending.isEmpty()) {
+                return;
+            }
+            scheduled = true;
+        }
+        try {
+            Platform.runLater(this::drain);
+        } catch (IllegalStateException e) {
+            // the JavaFX runtime is not running, so nothing is bound to this list on an FX thread
+            fxMissing = true;
+            drain();
+            return;
+        }
+        fxRunning = true;
+        if (Platform.isFxApplicationThread()) {
+            drain();
+        }
+    }
+
+    private void queue(Op<T> op) {
+        if (!mirroring) {
+            return;
+        }
+        synchronized (queueLock) {
+            pending.add(op);
+        }
+    }
+
+    /**
+     * Applies every queued change. The queue lock is only held while taking the queued changes, so threads
+     * queueing more changes never wait for listeners to run; the apply lock keeps batches in order. A change made
+     * by a listener while a batch is being published is left queued and applied by the loop once it finishes.
+     */
+    private void drain() {
+        synchronized (applyLock) {
+            if (applying) {
+                return;
+            }
+            while (true) {
+                List<Op<T>> ops;
+                synchronized (queueLock) {
+                    scheduled = false;
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    ops = pending;
+                    pending = new ArrayList<>();
+                }
+                apply(ops);
+            }
+        }
+    }
+
+    private void apply(List<Op<T>> ops) {
+        applying = true;
+        beginChange();
+        try {
+            for (Op<T> op : ops) {
+                switch (op.kind) {
+                    case ADD:
+                        add(op.index, op.item);
+                        break;
+                    case SET:
+                        set(op.index, op.item);
+                        break;
+                    case REMOVE_ALL:
+                        compact(op.indices);
+                        break;
+                    case UPDATE:
+                        int index = positionOf(op.item);
+                        if (index >= 0) {
+                            nextUpdate(index);
+                        }
+                        break;
+                    default:
+                        remove(op.index);
+                        break;
+                }
+            }
+        } finally {
+            endChange();
+            applying = false;
+        }
+    }
+
+    /**
+     * Removes several items in one pass, reporting each removed item at its position after the removals before it,
+     * which is how the listeners would have seen them removed one at a time. The empty slots go in the same pass.
+     */
+    private void compact(int[] indices) {
+        int kept = 0;
+        int next = 0;
+        int index = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            Object item = slots[slot];
+            if (item == null) {
+                continue;
+            }
+            if (next < indices.length && indices[next] == index) {
+                next++;
+                T removed = cast(item);
+                nextRemove(kept, removed);
+            } else {
+                slots[kept++] = item;
+            }
+            index++;
+        }
+        Arrays.fill(slots, kept, slotCount, null);
+        slotCount = kept;
+        size = kept;
+        modCount++;
+        rebuild();
+    }
+
+    private int positionOf(T item) {
+        if (positions == null) {
+            positions = new IdentityHashMap<>();
+            indexSlots();
+        }
+        Integer slot = positions.get(item);
+        if (slot == null) {
+            return -1;
+        }
+        return size == slotCount ? slot : countBefore(slot);
+    }
+
+    @Override
+    public T get(int index) {
+        return cast(slots[slotOf(index)]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    protected void doAdd(int index, T element) {
+        checkApplying();
+        if (index == size) {
+            append(element);
+            return;
+        }
+        // an insertion before the end shifts the items after it, so the empty slots go first
+        Objects.checkIndex(index, size);
+        squeeze();
+        ensureCapacity(slotCount + 1);
+        System.arraycopy(slots, index, slots, index + 1, slotCount - index);
+        slots[index] = element;
+        slotCount++;
+        size++;
+        rebuild();
+    }
+
+    @Override
+    protected T doSet(int index, T element) {
+        checkApplying();
+        int slot = slotOf(index);
+        T old = cast(slots[slot]);
+        slots[slot] = element;
+        if (positions != null) {
+            positions.remove(old);
+            positions.put(element, slot);
+        }
+        return old;
+    }
+
+    @Override
+    protected T doRemove(int index) {
+        checkApplying();
+        int slot = slotOf(index);
+        T old = cast(slots[slot]);
+        slots[slot] = null;
+        size--;
+        if (positions != null) {
+            positions.remove(old);
+        }
+        for (int i = slot + 1; i <= slotCount; i += i & -i) {
+            tree[i]--;
+        }
+        // empty slots at the end are simply dropped; no tree node before them counts them
+        while (slotCount > 0 && slots[slotCount - 1] == null) {
+            slotCount--;
+        }
+        if (slotCount - size > size && slotCount > MIN_SLOTS) {
+            squeeze();
+            rebuild();
+        }
+        return old;
+    }
+
+    private void append(T element) {
+        ensureCapacity(slotCount + 1);
+        int slot = slotCount++;
+        slots[slot] = element;
+        size++;
+        // the new node covers the slots from slot - lowest bit + 1 through slot, all of which are already counted
+        int node = slot + 1;
+        tree[node] = 1 + countBefore(slot) - countBefore(node - (node & -node));
+        if (positions != null) {
+            positions.put(element, slot);
+        }
+    }
+
+    /**
+     * Finds the slot holding the item at a position.
+     */
+    private int slotOf(int index) {
+        Objects.checkIndex(index, size);
+        if (size == slotCount) {
+            return index;
+        }
+        int node = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(slotCount); step > 0; step >>= 1) {
+            int next = node + step;
+            if (next <= slotCount && tree[next] < remaining) {
+                node = next;
+                remaining -= tree[next];
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Counts the items in the slots before a slot, which is the position of the item in that slot.
+     */
+    private int countBefore(int slot) {
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Moves the items down over the empty slots, keeping their order. The tree and the positions must be rebuilt
+     * afterwards.
+     */
+    private void squeeze() {
+        if (size == slotCount) {
+            return;
+        }
+        int kept = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slots[slot] != null) {
+                slots[kept++] = slots[slot];
+            }
+        }
+        Arrays.fill(slots, kept, slotCount, null);
+        slotCount = kept;
+    }
+
+    /**
+     * Rebuilds the tree and the positions after the items have moved to other slots, with no empty slots left.
+     */
+    private void rebuild() {
+        Arrays.fill(tree, 1, slotCount + 1, 1);
+        Arrays.fill(tree, slotCount + 1, tree.length, 0);
+        for (int i = 1; i <= slotCount; i++) {
+            int parent = i + (i & -i);
+            if (parent <= slotCount) {
+                tree[parent] += tree[i];
+            }
+        }
+        if (positions != null) {
+            positions.clear();
+            indexSlots();
+        }
+    }
+
+    private void indexSlots() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slots[slot] != null) {
+                positions.put(cast(slots[slot]), slot);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > slots.length) {
+            int length = Math.max(capacity, slots.length * 2);
+            slots = Arrays.copyOf(slots, length);
+            tree = Arrays.copyOf(tree, length + 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object item) {
+        return (T) item;
+    }
+
+    private void checkApplying() {
+        if (!applying) {
+            throw new UnsupportedOperationException("The inventory lists can only be changed through Inventory");
+        }
+    }
+
+    /**
+     * One queued change.
+     */
+    private static final class Op<T> {
+        final int kind;
+        final int index;
+        final T item;
+        final int[] indices;
+
+        Op(int kind, int index, T item) {
+            this.kind = kind;
+            this.index = index;
+            this.item = item;
+            this.indices = null;
+        }
+
+        Op(int[] indices) {
+            this.kind = REMOVE_ALL;
+            this.index = -1;
+            this.item = null;
+            this.indices = indices;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package Model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique IDs for one type of inventory item.
+ * The sequence only stores its high-water mark, so allocating an ID or a block of IDs is a single atomic update
+ * that never looks at the items themselves and never gives the same ID to two threads.
+ */
+public class IdSequence {
+
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * Returns the next unused ID.
+     * @return the allocated ID
+     */
+    public int next() {
+        return highWaterMark.incrementAndGet();
+    }
+
+    /**
+     * Reserves a contiguous block of IDs, for example for a bulk import.
+     * @param count the number of IDs to reserve
+     * @return the first ID of the block; the block runs up to but not including the returned value plus count
+     */
+    public int nextBlock(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        return highWaterMark.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Records that an ID is in use, so that it is never handed out. Used when items are loaded or added with an ID
+     * that did not come from this sequence.
+     * @param id the ID in use
+     */
+    public void observe(int id) {
+        if (id > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(id, Math::max);
+        }
+    }
+
+    /**
+     * Returns the highest ID handed out or observed so far.
+     * @return the high-water mark
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Sets the high-water mark, for example from persisted state at startup.
+     * @param id the highest ID known to be in use
+     */
+    public void reset(int id) {
+        highWaterMark.set(id);
+    }
+}
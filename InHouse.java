@@ -6,6 +6,10 @@ package Model;
  */
 public class InHouse extends Part {
     private int machineId;
+    /** The machine the part is filed under in the inventory's machine index, and what it added to its totals. */
+    private int filedMachineId;
+    private int filedStock;
+    private long filedValueCents;
 
     /**
      *Constructs a new InHouse part with the specified parameters.
@@ -35,6 +39,46 @@ public class InHouse extends Part {
      * @param machineId The machine ID to set.
      * */
     public void setMachineId ( int machineId){
-        this.machineId = machineId;
+        change(() -> this.machineId = machineId, () -> {
+            this.machineId = machineId;
+            changed(getId(), getName());
+        });
+    }
+
+    /**
+     * Returns the ID of the machine the part is filed under in the inventory's machine index.
+     * @return The machine ID.
+     * */
+    int getFiledMachineId() {
+        return filedMachineId;
+    }
+
+    /**
+     * Returns the stock the part added to its machine's total when it was last filed.
+     * @return The stock.
+     * */
+    int getFiledStock() {
+        return filedStock;
+    }
+
+    /**
+     * Returns the value the part added to its machine's total when it was last filed.
+     * @return The value in cents.
+     * */
+    long getFiledValueCents() {
+        return filedValueCents;
+    }
+
+    /**
+     * Records the machine the part is filed under and what it added to the machine's totals. Called by the
+     * MachineIndex.
+     * @param machineId The machine ID.
+     * @param stock The stock added.
+     * @param valueCents The value added, in cents.
+     * */
+    void setFiling(int machineId, int stock, long valueCents) {
+        this.filedMachineId = machineId;
+        this.filedStock = stock;
+        this.filedValueCents = valueCents;
     }
 }
\ No newline at end of file
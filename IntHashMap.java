@@ -0,0 +1,202 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A hash map keyed by primitive int values, used by the Inventory to index parts and products by ID.
+ * Keys are never boxed: they live in an int array and collisions are resolved by linear probing.
+ * @param <V> the type of value stored in the map
+ */
+public class IntHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructs an empty map with the default capacity.
+     */
+    public IntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map sized to hold the expected number of entries without resizing.
+     * @param expectedSize the number of entries the map is expected to hold
+     */
+    public IntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1) << 1);
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     * @param key the key to look up
+     * @return the mapped value, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /**
+     * Returns true if the map contains the given key.
+     * @param key the key to look up
+     * @return true if the key is present
+     */
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Maps the given key to the given value, replacing any previous mapping.
+     * @param key the key
+     * @param value the value, which must not be null
+     * @return the previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) {
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the given key.
+     * @param key the key
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V previous = (V) values[i];
+        removeAt(i);
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for the given key only if it is currently mapped to the given value.
+     * @param key the key
+     * @param value the value expected to be mapped to the key
+     * @return true if the mapping was removed
+     */
+    public boolean remove(int key, V value) {
+        int i = indexOf(key);
+        if (i < 0 || values[i] != value) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes every key in the map to the given action, in no particular order. The map must not be changed meanwhile.
+     * @param action receives each key
+     */
+    public void forEachKey(IntConsumer action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(int key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Deletes the entry at the given slot and shifts back any entries in the same probe run,
+     * so that lookups never need tombstones.
+     */
+    private void removeAt(int i) {
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int home = slot(keys[j]);
+            // move the entry back if its home slot is not cyclically inside (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
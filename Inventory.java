@@ -2,21 +2,143 @@ package Model;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
 /**
  * The Inventory class is responsible for managing the collection of all parts and products.
+ * It is safe to use from any thread. Every change is made under the write side of a StampedLock, lookups by ID
+ * use optimistic reads that only fall back to the read lock when they race a writer, and other reads share the
+ * read lock. One write lock is enough because a change only holds it while it updates the indexes in memory, which
+ * every change shares anyway; slow work such as forcing the log to disk is done once the lock is released, parts
+ * and products that are not in the inventory are changed without it, and stock adjustments made through
+ * StockReservations do not take it at all. The lists returned by getAllParts and getAllProducts are mirrors that
+ * follow the inventory on the JavaFX Application Thread, where they receive the changes made by other threads in
+ * batches.
+ * Bulk changes should go through addParts, deleteParts, updateParts, their product equivalents or batch, which make
+ * all of their changes under one acquisition of the lock and reach the mirrors as a single change.
+ * Reports and exports that read the whole inventory should take a view with snapshot, which costs nothing to take,
+ * never changes and needs no lock, so they neither block changes nor see them half made.
+ * The calls to every public operation are counted and timed by InventoryMetrics.
  * */
 public class Inventory {
 
-    private static int productID =0;
-    private static ObservableList<Part> allParts = FXCollections.observableArrayList();
-    private static ObservableList<Product> allProducts = FXCollections.observableArrayList();
+    private static final StampedLock lock = new StampedLock();
+    static final PartColumns partColumns = new PartColumns();
+    private static final IdSequence partIds = new IdSequence();
+    private static final IdSequence productIds = new IdSequence();
+    private static final FxMirrorList<Part> allParts = new FxMirrorList<>();
+    private static final FxMirrorList<Product> allProducts = new FxMirrorList<>();
+    private static final IntHashMap<Part> partsById = new IntHashMap<>();
+    private static final IntHashMap<Product> productsById = new IntHashMap<>();
+    private static final NameIndex<Part> partsByName = new NameIndex<>();
+    private static final NameIndex<Product> productsByName = new NameIndex<>();
+    private static final SearchIndex<Part> partSearch = new SearchIndex<>();
+    private static final SearchIndex<Product> productSearch = new SearchIndex<>();
+    private static final UsageIndex partUsage = new UsageIndex();
+    private static final VendorIndex vendors = new VendorIndex();
+    private static final MachineIndex machines = new MachineIndex();
+    private static final CostRollup costs = new CostRollup();
+    /** Set when a bulk load skipped a search index; it is then rebuilt on the first search. */
+    private static volatile boolean partSearchStale;
+    private static volatile boolean productSearchStale;
+    private static final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+    private static final PersistentVector.Editor<PartState> partStates = new PersistentVector.Editor<>();
+    private static final PersistentVector.Editor<ProductState> productStates = new PersistentVector.Editor<>();
+    private static boolean partViewStale;
+    private static boolean productViewStale;
+    private static volatile InventoryView view = InventoryView.EMPTY;
+    /** The thread running a batch, which already holds the write lock. */
+    private static volatile Thread batchThread;
+    /** The thread holding the write lock, which may take it again and read without the read lock. */
+    private static volatile Thread writeOwner;
+
+    /**
+     * Registers a listener to be told about every later change to the inventory.
+     * @param listener the listener to add
+     * */
+    public static void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     * @param listener the listener to remove
+     * */
+    public static void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
 
     /**
      *Returns a new unique product ID.
      * @return an integer representing the new product ID
      * */
     public static int getNewProductId() {
-        return ++productID;
+        long started = InventoryMetrics.GET_NEW_PRODUCT_ID.start();
+        try {
+            return productIds.next();
+        } finally {
+            InventoryMetrics.GET_NEW_PRODUCT_ID.record(started);
+        }
+    }
+
+    /**
+     * Returns a new unique part ID.
+     * @return an integer representing the new part ID
+     * */
+    public static int getNewPartId() {
+        long started = InventoryMetrics.GET_NEW_PART_ID.start();
+        try {
+            return partIds.next();
+        } finally {
+            InventoryMetrics.GET_NEW_PART_ID.record(started);
+        }
+    }
+
+    /**
+     * Reserves a block of consecutive part IDs, for example for a bulk import.
+     * @param count the number of IDs to reserve
+     * @return the first ID of the block
+     * */
+    public static int allocatePartIds(int count) {
+        long started = InventoryMetrics.ALLOCATE_PART_IDS.start();
+        try {
+            return partIds.nextBlock(count);
+        } finally {
+            InventoryMetrics.ALLOCATE_PART_IDS.record(started);
+        }
+    }
+
+    /**
+     * Reserves a block of consecutive product IDs, for example for a bulk import.
+     * @param count the number of IDs to reserve
+     * @return the first ID of the block
+     * */
+    public static int allocateProductIds(int count) {
+        long started = InventoryMetrics.ALLOCATE_PRODUCT_IDS.start();
+        try {
+            return productIds.nextBlock(count);
+        } finally {
+            InventoryMetrics.ALLOCATE_PRODUCT_IDS.record(started);
+        }
     }
 
     /**
@@ -24,7 +146,18 @@ public class Inventory {
      * @param newPart the part to be added to the list
      * */
     public static void addPart(Part newPart){
-        allParts.add(newPart);
+        long started = InventoryMetrics.ADD_PART.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                appendPart(newPart);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+        } finally {
+            InventoryMetrics.ADD_PART.record(started);
+        }
     }
 
     /**
@@ -32,7 +165,91 @@ public class Inventory {
      * @param newProduct the product to be added to the list
      * */
     public static void addProduct(Product newProduct){
-        allProducts.add(newProduct);
+        long started = InventoryMetrics.ADD_PRODUCT.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                appendProduct(newProduct);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+        } finally {
+            InventoryMetrics.ADD_PRODUCT.record(started);
+        }
+    }
+
+    /**
+     * Adds many parts under a single acquisition of the lock, publishing them to the mirrored list as one change.
+     * When the batch is at least as large as the inventory already is, the trigram search index is left to be
+     * rebuilt by the first search, which is cheaper than updating it one part at a time.
+     * @param newParts the parts to be added, in order
+     * */
+    public static void addParts(Collection<? extends Part> newParts){
+        long started = InventoryMetrics.ADD_PARTS.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                if (newParts.size() >= partStates.size()) {
+                    partSearchStale = true;
+                }
+                for (Part newPart : newParts) {
+                    appendPart(newPart);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+        } finally {
+            InventoryMetrics.ADD_PARTS.record(started);
+        }
+    }
+
+    /**
+     * Adds many products under a single acquisition of the lock, publishing them to the mirrored list as one change.
+     * When the batch is at least as large as the inventory already is, the trigram search index is left to be
+     * rebuilt by the first search, which is cheaper than updating it one product at a time.
+     * @param newProducts the products to be added, in order
+     * */
+    public static void addProducts(Collection<? extends Product> newProducts){
+        long started = InventoryMetrics.ADD_PRODUCTS.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                if (newProducts.size() >= productStates.size()) {
+                    productSearchStale = true;
+                }
+                for (Product newProduct : newProducts) {
+                    appendProduct(newProduct);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+        } finally {
+            InventoryMetrics.ADD_PRODUCTS.record(started);
+        }
+    }
+
+    /**
+     * Checks the rule every part and product must meet for its minimum: greater than 0 and less than the maximum.
+     * @param min the minimum stock level
+     * @param max the maximum stock level
+     * @return true if the minimum is valid
+     * */
+    public static boolean isMinValid(int min, int max){
+        return min > 0 && min < max;
+    }
+
+    /**
+     * Checks the rule every part and product must meet for its stock: equal to or between the minimum and maximum.
+     * @param min the minimum stock level
+     * @param max the maximum stock level
+     * @param stock the stock on hand
+     * @return true if the stock is valid
+     * */
+    public static boolean isInventoryValid(int min, int max, int stock){
+        return stock >= min && stock <= max;
     }
 
     /**
@@ -41,14 +258,12 @@ public class Inventory {
      * @return the part found with the given ID, or null if no such part exists
      * */
     public Part lookupPart(int partId){
-        Part partFound = null;
-
-        for (Part part: allParts){
-            if (part.getId() == partId){
-                partFound = part;
-            }
+        long started = InventoryMetrics.LOOKUP_PART_BY_ID.start();
+        try {
+            return readOptimistically(() -> partsById.get(partId));
+        } finally {
+            InventoryMetrics.LOOKUP_PART_BY_ID.record(started);
         }
-        return partFound;
     }
 
     /**
@@ -57,56 +272,332 @@ public class Inventory {
      * @return the product found with the given ID, or null if no such product exists
      * */
     public Product lookupProduct(int productId){
-        Product productFound = null;
-
-        for (Product product: allProducts){
-            if (product.getId() == productId){
-                productFound = product;
-            }
+        long started = InventoryMetrics.LOOKUP_PRODUCT_BY_ID.start();
+        try {
+            return readOptimistically(() -> productsById.get(productId));
+        } finally {
+            InventoryMetrics.LOOKUP_PRODUCT_BY_ID.record(started);
         }
-        return productFound;
     }
 
     /**
      * Finds all parts with names matching the provided search string.
      * @param partName the search string to match against part names
-     * @return an ObservableList containing all parts with matching names, or an empty list if no matches were found
+     * @return a read-only ObservableList containing all parts with matching names, or an empty list if no matches were found
      * */
     public static ObservableList<Part> lookupPart(String partName){
-        ObservableList<Part> partsFound = FXCollections.observableArrayList();
+        long started = InventoryMetrics.LOOKUP_PART_BY_NAME.start();
+        try {
+            List<Part> partsFound = lookupPartsByName(partName, false);
 
-        for (Part part : allParts){
-            if (part.getName().equals(partName)){
-                partsFound.add(part);
+            if (partsFound.isEmpty()){
+                return FXCollections.emptyObservableList();
             }
-        }
 
-        if (partsFound.isEmpty()){
-            return FXCollections.emptyObservableList();
+            return FXCollections.observableList(partsFound);
+        } finally {
+            InventoryMetrics.LOOKUP_PART_BY_NAME.record(started);
         }
-
-        return partsFound;
     }
 
     /**
      *Finds all products with names matching the provided search string.
      * @param productName the search string to match against product names
-     * @return an ObservableList containing all products with matching names, or an empty list if no matches were found
+     * @return a read-only ObservableList containing all products with matching names, or an empty list if no matches were found
      * */
     public static ObservableList<Product> lookupProduct(String productName){
-        ObservableList<Product> productsFound = FXCollections.observableArrayList();
+        long started = InventoryMetrics.LOOKUP_PRODUCT_BY_NAME.start();
+        try {
+            List<Product> productsFound = lookupProductsByName(productName, false);
+
+            if (productsFound.isEmpty()){
+                return FXCollections.emptyObservableList();
+            }
+
+            return FXCollections.observableList(productsFound);
+        } finally {
+            InventoryMetrics.LOOKUP_PRODUCT_BY_NAME.record(started);
+        }
+    }
+
+    /**
+     * Finds all parts with the given name without wrapping the result in an ObservableList.
+     * @param partName the name to match against part names
+     * @param ignoreCase true to match names regardless of case
+     * @return a read-only list of the matching parts, empty if no matches were found
+     * */
+    public static List<Part> lookupPartsByName(String partName, boolean ignoreCase){
+        long started = InventoryMetrics.LOOKUP_PARTS_BY_NAME.start();
+        try {
+            return read(() -> ignoreCase ? partsByName.lookupIgnoreCase(partName) : partsByName.lookup(partName));
+        } finally {
+            InventoryMetrics.LOOKUP_PARTS_BY_NAME.record(started);
+        }
+    }
+
+    /**
+     * Finds all products with the given name without wrapping the result in an ObservableList.
+     * @param productName the name to match against product names
+     * @param ignoreCase true to match names regardless of case
+     * @return a read-only list of the matching products, empty if no matches were found
+     * */
+    public static List<Product> lookupProductsByName(String productName, boolean ignoreCase){
+        long started = InventoryMetrics.LOOKUP_PRODUCTS_BY_NAME.start();
+        try {
+            return read(() -> ignoreCase ? productsByName.lookupIgnoreCase(productName)
+                    : productsByName.lookup(productName));
+        } finally {
+            InventoryMetrics.LOOKUP_PRODUCTS_BY_NAME.record(started);
+        }
+    }
+
+    /**
+     * Finds all parts whose name or ID contains the search term, ignoring case, using the trigram search index.
+     * @param searchTerm the text to search for
+     * @return the matching parts in the order they were added
+     * @throws java.util.concurrent.CancellationException if the calling thread is interrupted during the search, so
+     *         a search running in the background can be abandoned
+     * */
+    public static List<Part> searchParts(String searchTerm){
+        long started = InventoryMetrics.SEARCH_PARTS.start();
+        try {
+            if (partSearchStale) {
+                rebuildPartSearch();
+            }
+            return read(() -> partSearch.search(searchTerm));
+        } finally {
+            InventoryMetrics.SEARCH_PARTS.record(started);
+        }
+    }
+
+    /**
+     * Finds all products whose name or ID contains the search term, ignoring case, using the trigram search index.
+     * @param searchTerm the text to search for
+     * @return the matching products in the order they were added
+     * @throws java.util.concurrent.CancellationException if the calling thread is interrupted during the search, so
+     *         a search running in the background can be abandoned
+     * */
+    public static List<Product> searchProducts(String searchTerm){
+        long started = InventoryMetrics.SEARCH_PRODUCTS.start();
+        try {
+            if (productSearchStale) {
+                rebuildProductSearch();
+            }
+            return read(() -> productSearch.search(searchTerm));
+        } finally {
+            InventoryMetrics.SEARCH_PRODUCTS.record(started);
+        }
+    }
+
+    /**
+     * Returns whether any product in the inventory uses a part with the given ID, for example to stop the part being
+     * deleted while products still need it. Takes constant time.
+     * @param partId the ID of the part
+     * @return true if at least one product lists the part
+     * */
+    public static boolean isPartUsed(int partId){
+        long started = InventoryMetrics.IS_PART_USED.start();
+        try {
+            return readOptimistically(() -> partUsage.isUsed(partId));
+        } finally {
+            InventoryMetrics.IS_PART_USED.record(started);
+        }
+    }
+
+    /**
+     * Returns the number of products in the inventory that use a part with the given ID. Takes constant time.
+     * @param partId the ID of the part
+     * @return the number of products that list the part
+     * */
+    public static int countProductsUsingPart(int partId){
+        long started = InventoryMetrics.COUNT_PRODUCTS_USING_PART.start();
+        try {
+            return readOptimistically(() -> partUsage.count(partId));
+        } finally {
+            InventoryMetrics.COUNT_PRODUCTS_USING_PART.record(started);
+        }
+    }
+
+    /**
+     * Finds the products in the inventory that use a part with the given ID, without looking at any other product.
+     * @param partId the ID of the part
+     * @return a new list of the products that list the part
+     * */
+    public static List<Product> getProductsUsingPart(int partId){
+        long started = InventoryMetrics.GET_PRODUCTS_USING_PART.start();
+        try {
+            return readOptimistically(() -> partUsage.products(partId));
+        } finally {
+            InventoryMetrics.GET_PRODUCTS_USING_PART.record(started);
+        }
+    }
+
+    /**
+     * Finds the outsourced parts supplied by a company, through the vendor index, without looking at any other part.
+     * @param companyName the name of the company, matched exactly
+     * @return a new list of the company's parts, in the order of the list of all parts
+     * */
+    public static List<Outsourced> lookupPartsByVendor(String companyName){
+        long started = InventoryMetrics.LOOKUP_PARTS_BY_VENDOR.start();
+        try {
+            return read(() -> vendors.parts(Vendors.find(companyName)));
+        } finally {
+            InventoryMetrics.LOOKUP_PARTS_BY_VENDOR.record(started);
+        }
+    }
+
+    /**
+     * Returns the number of outsourced parts supplied by a company. Takes constant time.
+     * @param companyName the name of the company, matched exactly
+     * @return the number of the company's parts
+     * */
+    public static int countPartsByVendor(String companyName){
+        long started = InventoryMetrics.COUNT_PARTS_BY_VENDOR.start();
+        try {
+            int vendorId = Vendors.find(companyName);
+            return readOptimistically(() -> vendors.count(vendorId));
+        } finally {
+            InventoryMetrics.COUNT_PARTS_BY_VENDOR.record(started);
+        }
+    }
 
-        for (Product product : allProducts){
-            if (product.getName().equals(productName)){
-                productsFound.add(product);
+    /**
+     * Returns the names of the companies that supply at least one part in the inventory.
+     * @return a new list of the company names, in alphabetical order
+     * */
+    public static List<String> getVendors(){
+        long started = InventoryMetrics.GET_VENDORS.start();
+        try {
+            List<String> names = new ArrayList<>();
+            for (int vendorId : read(vendors::vendors)) {
+                names.add(Vendors.name(vendorId));
             }
+            names.sort(null);
+            return names;
+        } finally {
+            InventoryMetrics.GET_VENDORS.record(started);
+        }
+    }
+
+    /**
+     * Sets a new price on every part supplied by a company, in one batch that visits only that company's parts. The
+     * material costs of the products using them follow, as for any other change of price.
+     * @param companyName the name of the company, matched exactly
+     * @param newPrice gives the new price of a part from its current price
+     * @return the number of parts given a new price
+     * */
+    public static int updateVendorPrices(String companyName, DoubleUnaryOperator newPrice){
+        long started = InventoryMetrics.UPDATE_VENDOR_PRICES.start();
+        try {
+            int vendorId = Vendors.find(companyName);
+            int[] updated = new int[1];
+            batch(tx -> {
+                for (Outsourced part : vendors.parts(vendorId)) {
+                    part.setPrice(newPrice.applyAsDouble(part.getPrice()));
+                    updated[0]++;
+                }
+            });
+            return updated[0];
+        } finally {
+            InventoryMetrics.UPDATE_VENDOR_PRICES.record(started);
+        }
+    }
+
+    /**
+     * Finds the in-house parts made on a machine, through the machine index, without looking at any other part.
+     * @param machineId the ID of the machine
+     * @return a new list of the machine's parts, in the order of the list of all parts
+     * */
+    public static List<InHouse> lookupPartsByMachine(int machineId){
+        long started = InventoryMetrics.LOOKUP_PARTS_BY_MACHINE.start();
+        try {
+            return read(() -> machines.parts(machineId));
+        } finally {
+            InventoryMetrics.LOOKUP_PARTS_BY_MACHINE.record(started);
         }
+    }
 
-        if (productsFound.isEmpty()){
-            return FXCollections.emptyObservableList();
+    /**
+     * Returns the load on a machine: the number of in-house parts it makes and their total stock and value. The
+     * totals are kept up to date as parts change, so reading them does not visit any part. Stock taken through
+     * StockReservations is counted once its change has been reported to the listeners.
+     * @param machineId the ID of the machine
+     * @return the load on the machine
+     * */
+    public static MachineLoad getMachineLoad(int machineId){
+        long started = InventoryMetrics.GET_MACHINE_LOAD.start();
+        try {
+            return readOptimistically(() -> machines.load(machineId));
+        } finally {
+            InventoryMetrics.GET_MACHINE_LOAD.record(started);
         }
+    }
 
-        return productsFound;
+    /**
+     * Returns the load on every machine that makes at least one part in the inventory, in time proportional to the
+     * number of machines rather than the number of parts.
+     * @return a new list of the loads, in order of machine ID
+     * */
+    public static List<MachineLoad> getMachineLoads(){
+        long started = InventoryMetrics.GET_MACHINE_LOADS.start();
+        try {
+            return read(machines::loads);
+        } finally {
+            InventoryMetrics.GET_MACHINE_LOADS.record(started);
+        }
+    }
+
+    /**
+     * Returns the sum of the material costs of every product in the inventory. The total is kept up to date as part
+     * prices and associations change, so reading it does not visit any product.
+     * @return the total material cost of all products
+     * */
+    public static double getTotalMaterialCost(){
+        long started = InventoryMetrics.GET_TOTAL_MATERIAL_COST.start();
+        try {
+            return readOptimistically(costs::getTotalMaterialCost);
+        } finally {
+            InventoryMetrics.GET_TOTAL_MATERIAL_COST.record(started);
+        }
+    }
+
+    /**
+     * Returns the total value of the parts on hand, the sum of price times stock over every part.
+     * @return the total value of all parts in stock
+     * */
+    public static double getTotalPartValue(){
+        long started = InventoryMetrics.GET_TOTAL_PART_VALUE.start();
+        try {
+            return read(partColumns::totalValue);
+        } finally {
+            InventoryMetrics.GET_TOTAL_PART_VALUE.record(started);
+        }
+    }
+
+    /**
+     * Returns the total number of part units on hand.
+     * @return the sum of the stock of every part
+     * */
+    public static long getTotalPartStock(){
+        long started = InventoryMetrics.GET_TOTAL_PART_STOCK.start();
+        try {
+            return read(partColumns::totalStock);
+        } finally {
+            InventoryMetrics.GET_TOTAL_PART_STOCK.record(started);
+        }
+    }
+
+    /**
+     * Finds all parts whose stock has fallen to or below their min.
+     * @return the low-stock parts
+     * */
+    public static List<Part> getLowStockParts(){
+        long started = InventoryMetrics.GET_LOW_STOCK_PARTS.start();
+        try {
+            return read(partColumns::lowStock);
+        } finally {
+            InventoryMetrics.GET_LOW_STOCK_PARTS.record(started);
+        }
     }
 
     /**
@@ -115,7 +606,18 @@ public class Inventory {
      * @param selectedPart the updated part
      * */
     public static void updatePart(int index, Part selectedPart) {
-        allParts.set(index, selectedPart);
+        long started = InventoryMetrics.UPDATE_PART.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                setPartAt(index, selectedPart);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+        } finally {
+            InventoryMetrics.UPDATE_PART.record(started);
+        }
     }
 
     /**
@@ -124,47 +626,1338 @@ public class Inventory {
      * @param selectedProduct the updated product.
      * */
     public static void updateProduct(int index, Product selectedProduct) {
-        allProducts.set(index, selectedProduct);
+        long started = InventoryMetrics.UPDATE_PRODUCT.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                setProductAt(index, selectedProduct);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+        } finally {
+            InventoryMetrics.UPDATE_PRODUCT.record(started);
+        }
+    }
+
+    /**
+     * Replaces the part with the given ID by another part, which takes its place in the list of all parts. The part
+     * is found through the ID index, so the cost does not grow with the size of the inventory.
+     * @param id the ID of the part to be replaced
+     * @param selectedPart the updated part
+     * @return true if the part was replaced, false if no part in the inventory has the ID
+     * */
+    public static boolean updatePartById(int id, Part selectedPart) {
+        long started = InventoryMetrics.UPDATE_PART_BY_ID.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                Part current = partsById.get(id);
+                if (current == null) {
+                    return false;
+                }
+                setPartAt(partStates.indexAt(current.getPosition()), selectedPart);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+            return true;
+        } finally {
+            InventoryMetrics.UPDATE_PART_BY_ID.record(started);
+        }
+    }
+
+    /**
+     * Replaces the product with the given ID by another product, which takes its place in the list of all products.
+     * The product is found through the ID index, so the cost does not grow with the size of the inventory.
+     * @param id the ID of the product to be replaced
+     * @param selectedProduct the updated product
+     * @return true if the product was replaced, false if no product in the inventory has the ID
+     * */
+    public static boolean updateProductById(int id, Product selectedProduct) {
+        long started = InventoryMetrics.UPDATE_PRODUCT_BY_ID.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                Product current = productsById.get(id);
+                if (current == null) {
+                    return false;
+                }
+                setProductAt(productStates.indexAt(current.getPosition()), selectedProduct);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+            return true;
+        } finally {
+            InventoryMetrics.UPDATE_PRODUCT_BY_ID.record(started);
+        }
+    }
+
+    /**
+     * Replaces the part with the given ID in a single step, keeping its place in the list of all parts and among the
+     * associated parts of every product that uses it. A replacement of the same class is copied onto the part in
+     * the inventory, which stays the same object, and the listeners are told of one change to it. A replacement of
+     * another class, such as an Outsourced part for an InHouse one, takes the part's place in the list and in every
+     * product that listed it, found through the part usage index, and the listeners are told of the replacement and
+     * of the change to each of those products.
+     * @param id the ID of the part to be replaced
+     * @param replacement the part holding the new values, which must not be another part in the inventory
+     * @return true if the part was replaced, false if no part in the inventory has the ID
+     * */
+    public static boolean replacePart(int id, Part replacement) {
+        long started = InventoryMetrics.REPLACE_PART.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                Part current = partsById.get(id);
+                if (current == null) {
+                    return false;
+                }
+                if (replacement != current && replacement.inInventory()) {
+                    throw new IllegalArgumentException("The replacement part is already in the inventory");
+                }
+                if (replacement.getClass() == current.getClass()) {
+                    copyPartInPlace(current, replacement);
+                } else {
+                    swapPart(current, replacement);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+            publish(allProducts);
+            return true;
+        } finally {
+            InventoryMetrics.REPLACE_PART.record(started);
+        }
+    }
+
+    /**
+     * Replaces the product with the given ID in a single step, keeping its place in the list of all products. The
+     * values and associated parts of the replacement are copied onto the product in the inventory, which stays the
+     * same object, and the listeners are told of one change to it.
+     * @param id the ID of the product to be replaced
+     * @param replacement the product holding the new values, which must not be another product in the inventory
+     * @return true if the product was replaced, false if no product in the inventory has the ID
+     * */
+    public static boolean replaceProduct(int id, Product replacement) {
+        long started = InventoryMetrics.REPLACE_PRODUCT.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                Product current = productsById.get(id);
+                if (current == null) {
+                    return false;
+                }
+                if (replacement != current && replacement.inInventory()) {
+                    throw new IllegalArgumentException("The replacement product is already in the inventory");
+                }
+                int oldId = current.getId();
+                unindexProduct(current);
+                InventoryCodec.copyProduct(current, replacement);
+                indexProduct(current);
+                allProducts.queueUpdate(current);
+                recordProduct(current);
+                for (InventoryListener listener : listeners) {
+                    listener.productChanged(current, oldId);
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+            return true;
+        } finally {
+            InventoryMetrics.REPLACE_PRODUCT.record(started);
+        }
+    }
+
+    /**
+     * Replaces many parts under a single acquisition of the lock, publishing them to the mirrored list as one change.
+     * @param updatedParts the new part for each index to be updated
+     * */
+    public static void updateParts(Map<Integer, ? extends Part> updatedParts) {
+        long started = InventoryMetrics.UPDATE_PARTS.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                for (Map.Entry<Integer, ? extends Part> entry : updatedParts.entrySet()) {
+                    setPartAt(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+        } finally {
+            InventoryMetrics.UPDATE_PARTS.record(started);
+        }
+    }
+
+    /**
+     * Replaces many products under a single acquisition of the lock, publishing them to the mirrored list as one
+     * change.
+     * @param updatedProducts the new product for each index to be updated
+     * */
+    public static void updateProducts(Map<Integer, ? extends Product> updatedProducts) {
+        long started = InventoryMetrics.UPDATE_PRODUCTS.start();
+        try {
+            long stamp = lockWrite();
+            try {
+                for (Map.Entry<Integer, ? extends Product> entry : updatedProducts.entrySet()) {
+                    setProductAt(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+        } finally {
+            InventoryMetrics.UPDATE_PRODUCTS.record(started);
+        }
     }
 
     /**
-     *  Removes the specified part from the allParts list if it exists.
+     *  Removes the specified part from the allParts list if it exists. The part's position is known, so the cost
+     *  does not grow with the size of the inventory.
      * @param selectedPart the part to be removed
      * @return true if the part was removed, false otherwise
      */
    public static boolean deletePart(Part selectedPart){
-       if (allParts.contains(selectedPart)) {
-           return allParts.remove(selectedPart);
+       long started = InventoryMetrics.DELETE_PART.start();
+       try {
+           boolean removed;
+           long stamp = lockWrite();
+           try {
+               removed = removePart(selectedPart);
+           } finally {
+               unlockWrite(stamp);
+           }
+           publish(allParts);
+           return removed;
+       } finally {
+           InventoryMetrics.DELETE_PART.record(started);
        }
-       return false;
    }
 
     /**
-     * Removes the specified product from the allProducts list if it exists.
+     * Removes the part with the given ID from the allParts list. The part is found through the ID index, so the
+     * cost does not grow with the size of the inventory.
+     * @param id the ID of the part to be removed
+     * @return true if the part was removed, false if no part in the inventory has the ID
+     */
+    public static boolean deletePartById(int id){
+        long started = InventoryMetrics.DELETE_PART_BY_ID.start();
+        try {
+            boolean removed;
+            long stamp = lockWrite();
+            try {
+                Part part = partsById.get(id);
+                removed = part != null && removePart(part);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+            return removed;
+        } finally {
+            InventoryMetrics.DELETE_PART_BY_ID.record(started);
+        }
+    }
+
+    /**
+     * Removes the specified product from the allProducts list if it exists. The product's position is known, so the
+     * cost does not grow with the size of the inventory.
      * @param selectedProduct the product to be removed
      * @return true if the product was removed, false otherwise
      */
     public static boolean deleteProduct(Product selectedProduct){
-        if (allProducts.contains(selectedProduct)) {
-            return allProducts.remove(selectedProduct);
+        long started = InventoryMetrics.DELETE_PRODUCT.start();
+        try {
+            boolean removed;
+            long stamp = lockWrite();
+            try {
+                removed = removeProduct(selectedProduct);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+            return removed;
+        } finally {
+            InventoryMetrics.DELETE_PRODUCT.record(started);
+        }
+    }
+
+    /**
+     * Removes the product with the given ID from the allProducts list. The product is found through the ID index,
+     * so the cost does not grow with the size of the inventory.
+     * @param id the ID of the product to be removed
+     * @return true if the product was removed, false if no product in the inventory has the ID
+     */
+    public static boolean deleteProductById(int id){
+        long started = InventoryMetrics.DELETE_PRODUCT_BY_ID.start();
+        try {
+            boolean removed;
+            long stamp = lockWrite();
+            try {
+                Product product = productsById.get(id);
+                removed = product != null && removeProduct(product);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+            return removed;
+        } finally {
+            InventoryMetrics.DELETE_PRODUCT_BY_ID.record(started);
+        }
+    }
+
+    /**
+     * Removes many parts in a single pass over the list of all parts, publishing them to the mirrored list as one
+     * change. Parts that are not in the inventory are ignored.
+     * @param selectedParts the parts to be removed
+     * @return the number of parts removed
+     */
+    public static int deleteParts(Collection<? extends Part> selectedParts){
+        long started = InventoryMetrics.DELETE_PARTS.start();
+        try {
+            int removed;
+            long stamp = lockWrite();
+            try {
+                Set<Part> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Part part : selectedParts) {
+                    if (part.inInventory() && doomed.add(part)) {
+                        unindexPart(part);
+                    }
+                }
+                removed = removeParts(doomed);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allParts);
+            return removed;
+        } finally {
+            InventoryMetrics.DELETE_PARTS.record(started);
+        }
+    }
+
+    /**
+     * Removes many products in a single pass over the list of all products, publishing them to the mirrored list as
+     * one change. Products that are not in the inventory are ignored.
+     * @param selectedProducts the products to be removed
+     * @return the number of products removed
+     */
+    public static int deleteProducts(Collection<? extends Product> selectedProducts){
+        long started = InventoryMetrics.DELETE_PRODUCTS.start();
+        try {
+            int removed;
+            long stamp = lockWrite();
+            try {
+                Set<Product> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Product product : selectedProducts) {
+                    if (product.inInventory() && doomed.add(product)) {
+                        unindexProduct(product);
+                    }
+                }
+                removed = removeProducts(doomed);
+            } finally {
+                unlockWrite(stamp);
+            }
+            publish(allProducts);
+            return removed;
+        } finally {
+            InventoryMetrics.DELETE_PRODUCTS.record(started);
+        }
+    }
+
+    /**
+     * Makes any number of changes to the inventory as one unit. The whole batch runs under the write lock, so no
+     * other thread sees it half done, and the mirrored lists receive all of its changes as a single change once it
+     * finishes. Parts removed in a batch are taken out of the lists together when it ends, or before the next
+     * change by index, and reach the mirrored lists as one change.
+     * A batch is not rolled back if the work throws; the changes made up to that point are kept.
+     * Other Inventory methods, and the setters of the parts and products in it, may be called from inside the work.
+     * @param work makes the changes through the given transaction
+     * */
+    public static void batch(Consumer<Tx> work){
+        long started = InventoryMetrics.BATCH.start();
+        try {
+            Tx tx = new Tx();
+            long stamp = lockWrite();
+            Thread outer = batchThread;
+            batchThread = Thread.currentThread();
+            try {
+                work.accept(tx);
+            } finally {
+                try {
+                    tx.flush();
+                } finally {
+                    tx.open = false;
+                    batchThread = outer;
+                    unlockWrite(stamp);
+                }
+            }
+            publish(allParts);
+            publish(allProducts);
+        } finally {
+            InventoryMetrics.BATCH.record(started);
         }
-        return false;
     }
 
     /**
      * Returns an ObservableList containing all the parts in the inventory.
+     * The list follows the inventory on the JavaFX Application Thread and should only be used there; it cannot be
+     * modified directly. It only starts following the inventory when it is first asked for.
      * @return an ObservableList containing all the parts in the inventory
      */
     public static ObservableList<Part> getAllParts(){
+        if (!allParts.isMirroring()) {
+            read(() -> {
+                List<Part> parts = new ArrayList<>(partStates.size());
+                for (int i = 0; i < partStates.size(); i++) {
+                    parts.add(partStates.get(i).getPart());
+                }
+                allParts.startMirroring(parts);
+                return null;
+            });
+        }
         return allParts;
     }
 
     /**
      * Returns an ObservableList containing all the products in the inventory.
+     * The list follows the inventory on the JavaFX Application Thread and should only be used there; it cannot be
+     * modified directly. It only starts following the inventory when it is first asked for.
      *
      * @return an ObservableList containing all the products in the inventory
      */
     public static ObservableList<Product> getAllProducts(){
+        if (!allProducts.isMirroring()) {
+            read(() -> {
+                List<Product> products = new ArrayList<>(productStates.size());
+                for (int i = 0; i < productStates.size(); i++) {
+                    products.add(productStates.get(i).getProduct());
+                }
+                allProducts.startMirroring(products);
+                return null;
+            });
+        }
         return allProducts;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a copy of the parts in the inventory that is safe to use from any thread.
+     * @return the parts in the inventory at the time of the call
+     */
+    public static List<Part> getPartsSnapshot(){
+        long started = InventoryMetrics.GET_PARTS_SNAPSHOT.start();
+        try {
+            List<PartState> states = currentView().getParts();
+            List<Part> copy = new ArrayList<>(states.size());
+            for (PartState state : states) {
+                copy.add(state.getPart());
+            }
+            return copy;
+        } finally {
+            InventoryMetrics.GET_PARTS_SNAPSHOT.record(started);
+        }
+    }
+
+    /**
+     * Returns a copy of the products in the inventory that is safe to use from any thread.
+     * @return the products in the inventory at the time of the call
+     */
+    public static List<Product> getProductsSnapshot(){
+        long started = InventoryMetrics.GET_PRODUCTS_SNAPSHOT.start();
+        try {
+            List<ProductState> states = currentView().getProducts();
+            List<Product> copy = new ArrayList<>(states.size());
+            for (ProductState state : states) {
+                copy.add(state.getProduct());
+            }
+            return copy;
+        } finally {
+            InventoryMetrics.GET_PRODUCTS_SNAPSHOT.record(started);
+        }
+    }
+
+    /**
+     * Returns the whole inventory as it was when the last change finished, as a view that never changes and can be
+     * read from any thread without a lock for as long as needed. Taking a view costs the same however large the
+     * inventory is, and the changes made after it do not wait for it. A batch shows in the views of other threads
+     * once it has finished, while the thread running it sees the changes it has made so far. The stock changes made
+     * through StockReservations show once they have been passed on to the listeners.
+     * @return the current view
+     */
+    public static InventoryView snapshot(){
+        long started = InventoryMetrics.SNAPSHOT.start();
+        try {
+            return currentView();
+        } finally {
+            InventoryMetrics.SNAPSHOT.record(started);
+        }
+    }
+
+    /**
+     * Runs a reader over the inventory's own lists under the read lock, so that it sees one consistent state while
+     * no changes can be made.
+     * @param reader receives read-only views of the parts and products lists
+     * @return the reader's result
+     */
+    static <T> T readState(BiFunction<List<Part>, List<Product>, T> reader) {
+        return read(() -> {
+            InventoryView current = currentView();
+            return reader.apply(items(current.getParts(), PartState::getPart),
+                    items(current.getProducts(), ProductState::getProduct));
+        });
+    }
+
+    /**
+     * Atomically adds to the stock of a part in the inventory without taking the lock. The part's slot in the column
+     * store is pinned so that the part cannot leave it while its stock is being changed, and the change itself is a
+     * compare-and-set on the stock column. Listeners are not told.
+     * @param part the part
+     * @param delta the amount to add, negative to take stock away
+     * @param checkMin true to refuse a change that would take the stock below the min
+     * @param checkMax true to refuse a change that would take the stock above the max
+     * @return true if the stock was changed
+     */
+    static boolean adjustPartStock(Part part, int delta, boolean checkMin, boolean checkMax) {
+        return part.adjustStockAtomically(delta, checkMin, checkMax);
+    }
+
+    /**
+     * Reads a value of a part, which may be in the column store. The read is made without locking and checked
+     * against the lock afterwards, so that a part whose slot was released and given to another part in between is
+     * read again under the read lock rather than returning the other part's value.
+     * @param reader reads the value
+     * @return the value
+     */
+    static double readDouble(DoubleSupplier reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                double result = reader.getAsDouble();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // torn read, retried below under the read lock
+            }
+        }
+        return read(reader::getAsDouble);
+    }
+
+    /**
+     * Reads a value of a part, which may be in the column store, in the same way as readDouble.
+     * @param reader reads the value
+     * @return the value
+     */
+    static int readInt(IntSupplier reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int result = reader.getAsInt();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // torn read, retried below under the read lock
+            }
+        }
+        return read(reader::getAsInt);
+    }
+
+    /**
+     * Runs a change to a part under the write lock, so the part cannot leave the column store, and its slot pass to
+     * another part, between the setter finding the slot and writing to it.
+     * @param change the change, which tells the inventory about itself
+     */
+    static void changePart(Runnable change) {
+        long stamp = lockWrite();
+        try {
+            change.run();
+        } finally {
+            unlockWrite(stamp);
+        }
+        publish(allParts);
+    }
+
+    /**
+     * Runs a change to a field or the associated parts of a product under the write lock, so no reader of the
+     * inventory sees it half made.
+     * @param change the change, which tells the inventory about itself
+     */
+    static void changeProduct(Runnable change) {
+        long stamp = lockWrite();
+        try {
+            change.run();
+        } finally {
+            unlockWrite(stamp);
+        }
+        publish(allProducts);
+    }
+
+    /**
+     * Returns the part at a position in the inventory's own list of parts.
+     * @param index the position
+     * @return the part at that position
+     */
+    static Part partAt(int index) {
+        return read(() -> partStates.get(index).getPart());
+    }
+
+    /**
+     * Returns the product at a position in the inventory's own list of products.
+     * @param index the position
+     * @return the product at that position
+     */
+    static Product productAt(int index) {
+        return read(() -> productStates.get(index).getProduct());
+    }
+
+    /**
+     * Brings the indexes up to date after one of the setters of a part in the inventory has changed it, tells the
+     * listeners and publishes an update of the part's row to the mirrored list.
+     * @param part the changed part
+     * @param oldId the ID of the part before the change
+     * @param oldName the name of the part before the change
+     * @param priceChanged true if the price of the part was changed
+     */
+    static void partChanged(Part part, int oldId, String oldName, boolean priceChanged) {
+        long stamp = lockWrite();
+        try {
+            if (!part.inInventory()) {
+                return;
+            }
+            boolean idChanged = oldId != part.getId();
+            boolean nameChanged = !Objects.equals(oldName, part.getName());
+            if (idChanged) {
+                partsById.remove(oldId, part);
+                partIds.observe(part.getId());
+                partsById.put(part.getId(), part);
+                moveUsage(part, oldId);
+            }
+            if (nameChanged) {
+                partsByName.remove(oldName, part);
+                partsByName.add(part.getName(), part);
+            }
+            if ((idChanged || nameChanged) && !partSearchStale) {
+                partSearch.add(part, part.getName(), part.getId());
+            }
+            if (part instanceof Outsourced) {
+                vendors.update((Outsourced) part);
+            } else if (part instanceof InHouse) {
+                machines.update((InHouse) part);
+            }
+            allParts.queueUpdate(part);
+            recordPart(part);
+            if (idChanged) {
+                for (Product product : partUsage.products(part.getId())) {
+                    recordProduct(product);
+                }
+            }
+            for (InventoryListener listener : listeners) {
+                listener.partChanged(part, oldId);
+            }
+            if (priceChanged) {
+                for (Product product : partUsage.products(part.getId())) {
+                    if (CostRollup.lists(product, part)) {
+                        recomputeCost(product);
+                    }
+                }
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+        publish(allParts);
+    }
+
+    /**
+     * Brings the part usage index up to date after a part has been added to or removed from the associated parts of
+     * a product in the inventory, and tells the listeners.
+     * @param product the changed product
+     * @param part the part that was added or removed
+     * @param added true if the part was added, false if it was removed
+     */
+    static void associationChanged(Product product, Part part, boolean added) {
+        long stamp = lockWrite();
+        try {
+            if (!product.inInventory()) {
+                return;
+            }
+            if (added) {
+                partUsage.add(part.getId(), product);
+            } else {
+                partUsage.remove(part.getId(), product);
+            }
+            for (InventoryListener listener : listeners) {
+                listener.productChanged(product, product.getId());
+            }
+            recomputeCost(product);
+            recordProduct(product);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Brings the indexes up to date after a product in the inventory has been changed through one of its setters
+     * or its associated parts, tells the listeners and publishes an update of the product's row to the mirrored
+     * list.
+     * @param product the changed product
+     * @param oldId the ID of the product before the change
+     * @param oldName the name of the product before the change
+     */
+    static void productChanged(Product product, int oldId, String oldName) {
+        long stamp = lockWrite();
+        try {
+            if (!product.inInventory()) {
+                return;
+            }
+            boolean idChanged = oldId != product.getId();
+            boolean nameChanged = !Objects.equals(oldName, product.getName());
+            if (idChanged) {
+                productsById.remove(oldId, product);
+                productIds.observe(product.getId());
+                productsById.put(product.getId(), product);
+            }
+            if (nameChanged) {
+                productsByName.remove(oldName, product);
+                productsByName.add(product.getName(), product);
+            }
+            if ((idChanged || nameChanged) && !productSearchStale) {
+                productSearch.add(product, product.getName(), product.getId());
+            }
+            allProducts.queueUpdate(product);
+            recordProduct(product);
+            for (InventoryListener listener : listeners) {
+                listener.productChanged(product, oldId);
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+        publish(allProducts);
+    }
+
+    /**
+     * Appends a part to the parts list, indexes it and tells the listeners. Must hold the write lock.
+     */
+    private static void appendPart(Part part) {
+        indexPart(part);
+        part.setPosition(partStates.positions());
+        partStates.add(PartState.of(part));
+        partViewStale = true;
+        int index = partStates.size() - 1;
+        allParts.queueAdd(index, part);
+        for (InventoryListener listener : listeners) {
+            listener.partAdded(index, part);
+        }
+    }
+
+    /**
+     * Appends a product to the products list, indexes it and tells the listeners. Must hold the write lock.
+     */
+    private static void appendProduct(Product product) {
+        indexProduct(product);
+        product.setPosition(productStates.positions());
+        productStates.add(ProductState.of(product));
+        productViewStale = true;
+        int index = productStates.size() - 1;
+        allProducts.queueAdd(index, product);
+        for (InventoryListener listener : listeners) {
+            listener.productAdded(index, product);
+        }
+    }
+
+    /**
+     * Replaces the part at an index in the parts list, moves the indexes over and tells the listeners. Must hold
+     * the write lock.
+     */
+    private static void setPartAt(int index, Part part) {
+        int position = partStates.positionOf(index);
+        Part replaced = partStates.getAt(position).getPart();
+        allParts.queueSet(index, part);
+        unindexPart(replaced);
+        indexPart(part);
+        part.setPosition(position);
+        recordPart(part);
+        for (InventoryListener listener : listeners) {
+            listener.partReplaced(index, replaced, part);
+        }
+    }
+
+    /**
+     * Replaces the product at an index in the products list, moves the indexes over and tells the listeners. Must
+     * hold the write lock.
+     */
+    private static void setProductAt(int index, Product product) {
+        int position = productStates.positionOf(index);
+        Product replaced = productStates.getAt(position).getProduct();
+        allProducts.queueSet(index, product);
+        unindexProduct(replaced);
+        indexProduct(product);
+        product.setPosition(position);
+        recordProduct(product);
+        for (InventoryListener listener : listeners) {
+            listener.productReplaced(index, replaced, product);
+        }
+    }
+
+    /**
+     * Copies the values of a part of the same class onto a part in the inventory, moves the indexes over and tells
+     * the listeners of one change. The part is out of the indexes while it is copied onto, so its setters tell no
+     * one. Must hold the write lock.
+     */
+    private static void copyPartInPlace(Part part, Part source) {
+        int oldId = part.getId();
+        double oldPrice = part.getPrice();
+        unindexPart(part);
+        InventoryCodec.copyPart(part, source);
+        indexPart(part);
+        boolean idChanged = oldId != part.getId();
+        boolean priceChanged = Double.compare(oldPrice, part.getPrice()) != 0;
+        if (idChanged) {
+            moveUsage(part, oldId);
+        }
+        allParts.queueUpdate(part);
+        recordPart(part);
+        for (InventoryListener listener : listeners) {
+            listener.partChanged(part, oldId);
+        }
+        if (idChanged || priceChanged) {
+            for (Product product : partUsage.products(part.getId())) {
+                if (CostRollup.lists(product, part)) {
+                    recordProduct(product);
+                    if (priceChanged) {
+                        recomputeCost(product);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts a part of another class in the place of a part in the inventory, both in the parts list and among the
+     * associated parts of every product that listed it, and tells the listeners of the replacement and of the
+     * change to each of those products. Must hold the write lock.
+     */
+    private static void swapPart(Part part, Part replacement) {
+        int oldId = part.getId();
+        List<Product> users = partUsage.products(oldId);
+        setPartAt(partStates.indexAt(part.getPosition()), replacement);
+        for (Product product : users) {
+            int listings = product.replaceAssociatedPart(part, replacement);
+            if (listings == 0) {
+                continue;
+            }
+            for (int i = 0; i < listings; i++) {
+                partUsage.remove(oldId, product);
+                partUsage.add(replacement.getId(), product);
+            }
+            allProducts.queueUpdate(product);
+            recomputeCost(product);
+            recordProduct(product);
+            for (InventoryListener listener : listeners) {
+                listener.productChanged(product, product.getId());
+            }
+        }
+    }
+
+    /**
+     * Takes a part out of the parts list, unindexes it and tells the listeners. Its position is left empty rather
+     * than moving every part after it down. Must hold the write lock.
+     * @return false if the part was not in the inventory
+     */
+    private static boolean removePart(Part part) {
+        if (!part.inInventory()) {
+            return false;
+        }
+        int index = partStates.indexAt(part.getPosition());
+        partStates.removeAt(part.getPosition());
+        partViewStale = true;
+        allParts.queueRemove(index);
+        unindexPart(part);
+        for (InventoryListener listener : listeners) {
+            listener.partRemoved(index, part);
+        }
+        compactParts();
+        return true;
+    }
+
+    /**
+     * Takes a product out of the products list, unindexes it and tells the listeners. Its position is left empty
+     * rather than moving every product after it down. Must hold the write lock.
+     * @return false if the product was not in the inventory
+     */
+    private static boolean removeProduct(Product product) {
+        if (!product.inInventory()) {
+            return false;
+        }
+        int index = productStates.indexAt(product.getPosition());
+        productStates.removeAt(product.getPosition());
+        productViewStale = true;
+        allProducts.queueRemove(index);
+        unindexProduct(product);
+        for (InventoryListener listener : listeners) {
+            listener.productRemoved(index, product);
+        }
+        compactProducts();
+        return true;
+    }
+
+    /**
+     * Takes already unindexed parts out of the parts list in the order they appear and tells the listeners,
+     * reporting each part at the index it had once the parts before it were gone. Must hold the write lock.
+     * @return the number of parts removed
+     */
+    private static int removeParts(Set<Part> doomed) {
+        if (doomed.isEmpty()) {
+            return 0;
+        }
+        int[] positions = new int[doomed.size()];
+        int removed = 0;
+        for (Part part : doomed) {
+            positions[removed++] = part.getPosition();
+        }
+        Arrays.sort(positions);
+        int[] indices = new int[removed];
+        for (int i = 0; i < removed; i++) {
+            int index = partStates.indexAt(positions[i]);
+            Part part = partStates.removeAt(positions[i]).getPart();
+            indices[i] = index + i;
+            for (InventoryListener listener : listeners) {
+                listener.partRemoved(index, part);
+            }
+        }
+        partViewStale = true;
+        allParts.queueRemoveAll(indices);
+        compactParts();
+        return removed;
+    }
+
+    /**
+     * Takes already unindexed products out of the products list in the order they appear and tells the listeners,
+     * reporting each product at the index it had once the products before it were gone. Must hold the write lock.
+     * @return the number of products removed
+     */
+    private static int removeProducts(Set<Product> doomed) {
+        if (doomed.isEmpty()) {
+            return 0;
+        }
+        int[] positions = new int[doomed.size()];
+        int removed = 0;
+        for (Product product : doomed) {
+            positions[removed++] = product.getPosition();
+        }
+        Arrays.sort(positions);
+        int[] indices = new int[removed];
+        for (int i = 0; i < removed; i++) {
+            int index = productStates.indexAt(positions[i]);
+            Product product = productStates.removeAt(positions[i]).getProduct();
+            indices[i] = index + i;
+            for (InventoryListener listener : listeners) {
+                listener.productRemoved(index, product);
+            }
+        }
+        productViewStale = true;
+        allProducts.queueRemoveAll(indices);
+        compactProducts();
+        return removed;
+    }
+
+    /**
+     * Closes up the empty positions left by removed parts once they outnumber the parts, so that the cost of the
+     * pass is spread over at least as many removals. Must hold the write lock.
+     */
+    private static void compactParts() {
+        if (partStates.positions() - partStates.size() > partStates.size()) {
+            partStates.compact((state, position) -> state.getPart().setPosition(position));
+        }
+    }
+
+    /**
+     * Closes up the empty positions left by removed products once they outnumber the products. Must hold the write
+     * lock.
+     */
+    private static void compactProducts() {
+        if (productStates.positions() - productStates.size() > productStates.size()) {
+            productStates.compact((state, position) -> state.getProduct().setPosition(position));
+        }
+    }
+
+    /**
+     * Adds a part that has just been put in the parts list to every part index. Must hold the write lock.
+     */
+    private static void indexPart(Part part) {
+        part.attach(partColumns);
+        partIds.observe(part.getId());
+        partsById.put(part.getId(), part);
+        partsByName.add(part.getName(), part);
+        if (!partSearchStale) {
+            partSearch.add(part, part.getName(), part.getId());
+        }
+        if (part instanceof Outsourced) {
+            vendors.add((Outsourced) part);
+        } else if (part instanceof InHouse) {
+            machines.add((InHouse) part);
+        }
+    }
+
+    /**
+     * Removes a part that has just been taken out of the parts list from every part index. Must hold the write lock.
+     */
+    private static void unindexPart(Part part) {
+        partsById.remove(part.getId(), part);
+        partsByName.remove(part.getName(), part);
+        if (!partSearchStale) {
+            partSearch.remove(part);
+        }
+        if (part instanceof Outsourced) {
+            vendors.remove((Outsourced) part);
+        } else if (part instanceof InHouse) {
+            machines.remove((InHouse) part);
+        }
+        part.detach(partColumns);
+    }
+
+    /**
+     * Adds a product that has just been put in the products list to every product index. Must hold the write lock.
+     */
+    private static void indexProduct(Product product) {
+        product.setInInventory(true);
+        for (Part part : product.getAllAssociatedParts()) {
+            partUsage.add(part.getId(), product);
+        }
+        costs.add(product);
+        productIds.observe(product.getId());
+        productsById.put(product.getId(), product);
+        productsByName.add(product.getName(), product);
+        if (!productSearchStale) {
+            productSearch.add(product, product.getName(), product.getId());
+        }
+    }
+
+    /**
+     * Removes a product that has just been taken out of the products list from every product index. Must hold the
+     * write lock.
+     */
+    private static void unindexProduct(Product product) {
+        for (Part part : product.getAllAssociatedParts()) {
+            partUsage.remove(part.getId(), product);
+        }
+        costs.remove(product);
+        productsById.remove(product.getId(), product);
+        productsByName.remove(product.getName(), product);
+        if (!productSearchStale) {
+            productSearch.remove(product);
+        }
+        product.setInInventory(false);
+    }
+
+    /**
+     * Recomputes the material cost of a product in the inventory and tells the listeners if it changed. Must hold
+     * the write lock.
+     */
+    private static void recomputeCost(Product product) {
+        double oldCost = costs.recompute(product);
+        if (Double.compare(oldCost, product.getMaterialCost()) != 0) {
+            recordProduct(product);
+            for (InventoryListener listener : listeners) {
+                listener.productCostChanged(product, oldCost);
+            }
+        }
+    }
+
+    /**
+     * Records the current values of a part in the inventory for the next view. Must hold the write lock.
+     */
+    private static void recordPart(Part part) {
+        partStates.setAt(part.getPosition(), PartState.of(part));
+        partViewStale = true;
+    }
+
+    /**
+     * Records the current values of a product in the inventory for the next view. Must hold the write lock.
+     */
+    private static void recordProduct(Product product) {
+        productStates.setAt(product.getPosition(), ProductState.of(product));
+        productViewStale = true;
+    }
+
+    /**
+     * Moves the listings of a part whose ID has changed to its new ID in the part usage index. Listings of other part
+     * objects that still carry the old ID stay where they are. Must hold the write lock.
+     */
+    private static void moveUsage(Part part, int oldId) {
+        for (Product product : partUsage.products(oldId)) {
+            for (Part listed : product.getAllAssociatedParts()) {
+                if (listed == part) {
+                    partUsage.remove(oldId, product);
+                    partUsage.add(part.getId(), product);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the part search index skipped by a bulk load.
+     */
+    private static void rebuildPartSearch() {
+        long stamp = lockWrite();
+        try {
+            if (partSearchStale) {
+                partSearch.clear();
+                for (PartState state : partStates) {
+                    partSearch.add(state.getPart(), state.getName(), state.getId());
+                }
+                partSearchStale = false;
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Builds the product search index skipped by a bulk load.
+     */
+    private static void rebuildProductSearch() {
+        long stamp = lockWrite();
+        try {
+            if (productSearchStale) {
+                productSearch.clear();
+                for (ProductState state : productStates) {
+                    productSearch.add(state.getProduct(), state.getName(), state.getId());
+                }
+                productSearchStale = false;
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the view of the inventory as it is now: the last published view, or for the thread running a batch,
+     * one that includes the changes the batch has made so far.
+     */
+    private static InventoryView currentView() {
+        if (batchThread == Thread.currentThread()) {
+            return new InventoryView(partStates.snapshot(), productStates.snapshot());
+        }
+        return view;
+    }
+
+    /**
+     * Presents the items behind a list of recorded values as a read-only list.
+     */
+    private static <S, T> List<T> items(List<S> states, Function<S, T> item) {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return item.apply(states.get(index));
+            }
+
+            @Override
+            public int size() {
+                return states.size();
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                Iterator<S> iterator = states.iterator();
+                return new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return item.apply(iterator.next());
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Takes the write lock, unless the calling thread holds it already.
+     * @return the stamp to unlock with, or 0 if the lock was already held
+     */
+    private static long lockWrite() {
+        Thread current = Thread.currentThread();
+        if (writeOwner == current) {
+            return 0;
+        }
+        long stamp = lock.writeLock();
+        writeOwner = current;
+        return stamp;
+    }
+
+    /**
+     * Releases the write lock taken by lockWrite, first publishing a new view if anything the views show has changed.
+     * Publishing takes an immutable copy of the changed lists of values, which shares all of their storage. Once the
+     * lock is released the listeners are given the chance to finish their work for the changes outside it.
+     */
+    private static void unlockWrite(long stamp) {
+        if (stamp != 0) {
+            if (partViewStale || productViewStale) {
+                InventoryView current = view;
+                view = new InventoryView(partViewStale ? partStates.snapshot() : current.getParts(),
+                        productViewStale ? productStates.snapshot() : current.getProducts());
+                partViewStale = false;
+                productViewStale = false;
+            }
+            writeOwner = null;
+            lock.unlockWrite(stamp);
+            for (InventoryListener listener : listeners) {
+                listener.writeLockReleased();
+            }
+        }
+    }
+
+    /**
+     * Publishes the changes queued on a mirrored list, unless the calling thread is running a batch, which publishes
+     * everything once it ends.
+     */
+    private static void publish(FxMirrorList<?> list) {
+        if (batchThread != Thread.currentThread()) {
+            list.publish();
+        }
+    }
+
+    /**
+     * Runs a short read without locking, and repeats it under the read lock if a writer got in the way. A read that
+     * races a writer may see a half-updated index and fail; that failure is discarded along with its result.
+     */
+    private static <T> T readOptimistically(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // torn read, retried below under the read lock
+            }
+        }
+        return read(reader);
+    }
+
+    /**
+     * Runs a read under the read lock.
+     */
+    private static <T> T read(Supplier<T> reader) {
+        if (writeOwner == Thread.currentThread()) {
+            return reader.get();
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The changes available inside Inventory.batch. A transaction can only be used while its batch is running.
+     */
+    public static final class Tx {
+
+        private final Set<Part> doomedParts = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Product> doomedProducts = Collections.newSetFromMap(new IdentityHashMap<>());
+        private boolean open = true;
+
+        private Tx() {
+        }
+
+        /**
+         * Adds a part to the end of the list of all parts.
+         * @param part the part to add
+         */
+        public void addPart(Part part) {
+            checkOpen();
+            appendPart(part);
+        }
+
+        /**
+         * Adds a product to the end of the list of all products.
+         * @param product the product to add
+         */
+        public void addProduct(Product product) {
+            checkOpen();
+            appendProduct(product);
+        }
+
+        /**
+         * Replaces the part at a position in the list of all parts, counting positions as if every part removed so
+         * far in this batch were already gone.
+         * @param index the position of the part to replace
+         * @param part the new part
+         */
+        public void updatePart(int index, Part part) {
+            checkOpen();
+            flushParts();
+            setPartAt(index, part);
+        }
+
+        /**
+         * Replaces the product at a position in the list of all products, counting positions as if every product
+         * removed so far in this batch were already gone.
+         * @param index the position of the product to replace
+         * @param product the new product
+         */
+        public void updateProduct(int index, Product product) {
+            checkOpen();
+            flushProducts();
+            setProductAt(index, product);
+        }
+
+        /**
+         * Removes a part. It leaves the indexes at once and the list of all parts when the batch ends.
+         * @param part the part to remove
+         * @return true if the part was in the inventory
+         */
+        public boolean deletePart(Part part) {
+            checkOpen();
+            if (!part.inInventory() || !doomedParts.add(part)) {
+                return false;
+            }
+            unindexPart(part);
+            return true;
+        }
+
+        /**
+         * Removes a product. It leaves the indexes at once and the list of all products when the batch ends.
+         * @param product the product to remove
+         * @return true if the product was in the inventory
+         */
+        public boolean deleteProduct(Product product) {
+            checkOpen();
+            if (!product.inInventory() || !doomedProducts.add(product)) {
+                return false;
+            }
+            unindexProduct(product);
+            return true;
+        }
+
+        private void flush() {
+            flushParts();
+            flushProducts();
+        }
+
+        private void flushParts() {
+            removeParts(doomedParts);
+            doomedParts.clear();
+        }
+
+        private void flushProducts() {
+            removeProducts(doomedProducts);
+            doomedProducts.clear();
+        }
+
+        private void checkOpen() {
+            if (!open) {
+                throw new IllegalStateException("The batch this transaction belongs to has finished");
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package Model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of parts and products shared by the write-ahead log and the snapshot files.
+ * A product's associated parts are written as part IDs and resolved against the Inventory when read back, so the
+ * parts must be loaded before the products that use them.
+ */
+class InventoryCodec {
+
+    static final byte IN_HOUSE = 0;
+    static final byte OUTSOURCED = 1;
+
+    private InventoryCodec() {
+    }
+
+    /**
+     * Writes a part, including whether it is made in-house or outsourced.
+     * @param out the output to write to
+     * @param part the part to write
+     * @throws IOException if the output fails
+     */
+    static void writePart(DataOutput out, Part part) throws IOException {
+        if (part instanceof Outsourced) {
+            out.writeByte(OUTSOURCED);
+        } else {
+            out.writeByte(IN_HOUSE);
+        }
+        out.writeInt(part.getId());
+        out.writeUTF(nullToEmpty(part.getName()));
+        out.writeDouble(part.getPrice());
+        out.writeInt(part.getStock());
+        out.writeInt(part.getMin());
+        out.writeInt(part.getMax());
+        if (part instanceof Outsourced) {
+            out.writeUTF(nullToEmpty(((Outsourced) part).getCompanyName()));
+        } else if (part instanceof InHouse) {
+            out.writeInt(((InHouse) part).getMachineId());
+        } else {
+            out.writeInt(0);
+        }
+    }
+
+    /**
+     * Reads a part written by writePart.
+     * @param in the input to read from
+     * @return a new part, not yet in the inventory
+     * @throws IOException if the input fails
+     */
+    static Part readPart(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        int id = in.readInt();
+        String name = in.readUTF();
+        double price = in.readDouble();
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        if (kind == OUTSOURCED) {
+            return new Outsourced(id, name, price, stock, min, max, in.readUTF());
+        }
+        return new InHouse(id, name, price, stock, min, max, in.readInt());
+    }
+
+    /**
+     * Copies the fields of a decoded or replacement part onto a part already in the inventory through its setters.
+     * @param target the part in the inventory
+     * @param source the decoded or replacement part
+     */
+    static void copyPart(Part target, Part source) {
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setPrice(source.getPrice());
+        target.setStock(source.getStock());
+        target.setMin(source.getMin());
+        target.setMax(source.getMax());
+        if (target instanceof InHouse && source instanceof InHouse) {
+            ((InHouse) target).setMachineId(((InHouse) source).getMachineId());
+        } else if (target instanceof Outsourced && source instanceof Outsourced) {
+            ((Outsourced) target).setCompanyName(((Outsourced) source).getCompanyName());
+        }
+    }
+
+    /**
+     * Writes a product and the IDs of its associated parts.
+     * @param out the output to write to
+     * @param product the product to write
+     * @throws IOException if the output fails
+     */
+    static void writeProduct(DataOutput out, Product product) throws IOException {
+        out.writeInt(product.getId());
+        out.writeUTF(nullToEmpty(product.getName()));
+        out.writeDouble(product.getPrice());
+        out.writeInt(product.getStock());
+        out.writeInt(product.getMin());
+        out.writeInt(product.getMax());
+        List<Part> associated = product.getAllAssociatedParts();
+        out.writeInt(associated.size());
+        for (Part part : associated) {
+            out.writeInt(part.getId());
+        }
+    }
+
+    /**
+     * Reads a product written by writeProduct. Associated parts that are no longer in the inventory are dropped.
+     * @param in the input to read from
+     * @return a new product, not yet in the inventory
+     * @throws IOException if the input fails
+     */
+    static Product readProduct(DataInput in) throws IOException {
+        Product product = new Product(in.readInt(), in.readUTF(), in.readDouble(), in.readInt(), in.readInt(),
+                in.readInt());
+        int count = in.readInt();
+        Inventory inventory = new Inventory();
+        List<Part> associated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Part part = inventory.lookupPart(in.readInt());
+            if (part != null) {
+                associated.add(part);
+            }
+        }
+        product.loadAssociatedParts(associated);
+        return product;
+    }
+
+    /**
+     * Copies the fields and associated parts of a decoded or replacement product onto a product already in the
+     * inventory.
+     * @param target the product in the inventory
+     * @param source the decoded or replacement product
+     */
+    static void copyProduct(Product target, Product source) {
+        target.setId(source.getId());
+        target.setName(source.getName());
+        target.setPrice(source.getPrice());
+        target.setStock(source.getStock());
+        target.setMin(source.getMin());
+        target.setMax(source.getMax());
+        List<Part> associatedParts = List.copyOf(source.getAllAssociatedParts());
+        for (Part part : List.copyOf(target.getAllAssociatedParts())) {
+            target.deleteAssociatedPart(part);
+        }
+        for (Part part : associatedParts) {
+            target.addAssociatedPart(part);
+        }
+    }
+
+    private static String nullToEmpty(String text) {
+        return text == null ? "" : text;
+    }
+}
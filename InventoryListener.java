@@ -0,0 +1,83 @@
+package Model;
+
+/**
+ * Receives every change made to the Inventory.
+ * Listeners are called while the Inventory's write lock is held, in the order the changes were made, so they see
+ * a consistent sequence of changes but must return quickly and must not call back into the Inventory's mutating
+ * methods. Indexes refer to positions in the Inventory's lists at the time of the change.
+ */
+public interface InventoryListener {
+
+    /**
+     * Called after a part is added.
+     * @param index the position of the new part
+     * @param part the new part
+     */
+    default void partAdded(int index, Part part) {}
+
+    /**
+     * Called after the part at a position is replaced by another part.
+     * @param index the position of the part
+     * @param oldPart the part that was replaced
+     * @param newPart the part that replaced it
+     */
+    default void partReplaced(int index, Part oldPart, Part newPart) {}
+
+    /**
+     * Called after a part is removed.
+     * @param index the position the part was removed from
+     * @param part the removed part
+     */
+    default void partRemoved(int index, Part part) {}
+
+    /**
+     * Called after a field of a part in the inventory is changed through one of its setters.
+     * @param part the changed part
+     * @param oldId the ID of the part before the change
+     */
+    default void partChanged(Part part, int oldId) {}
+
+    /**
+     * Called after a product is added.
+     * @param index the position of the new product
+     * @param product the new product
+     */
+    default void productAdded(int index, Product product) {}
+
+    /**
+     * Called after the product at a position is replaced by another product.
+     * @param index the position of the product
+     * @param oldProduct the product that was replaced
+     * @param newProduct the product that replaced it
+     */
+    default void productReplaced(int index, Product oldProduct, Product newProduct) {}
+
+    /**
+     * Called after a product is removed.
+     * @param index the position the product was removed from
+     * @param product the removed product
+     */
+    default void productRemoved(int index, Product product) {}
+
+    /**
+     * Called after a field or the associated parts of a product in the inventory are changed.
+     * @param product the changed product
+     * @param oldId the ID of the product before the change
+     */
+    default void productChanged(Product product, int oldId) {}
+
+    /**
+     * Called after the material cost of a product in the inventory has changed because the price of one of its
+     * parts or its associated parts changed.
+     * @param product the product, whose getMaterialCost returns the new cost
+     * @param oldCost the material cost before the change
+     */
+    default void productCostChanged(Product product, double oldCost) {}
+
+    /**
+     * Called on the thread that made one or more changes once it has released the Inventory's write lock, so that
+     * work for those changes that need not hold up other threads, such as forcing a log to disk, can be done without
+     * the lock. Unlike the other methods it may run at the same time on several threads.
+     */
+    default void writeLockReleased() {}
+}
@@ -0,0 +1,366 @@
+package Model;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Call counts and latency histograms for the operations of the Inventory and for changing a product's associated
+ * parts. Each operation counts its calls in a LongAdder, which spreads concurrent updates over separate cells instead
+ * of contending on one counter, and times them into a histogram of the same adders with sixteen buckets for every
+ * power of two nanoseconds, so a percentile is reported to within about six percent.
+ *
+ * Reading the clock twice costs more than the cheapest lookups themselves, so those operations time a random one in
+ * sixteen of their calls and count the rest; their percentiles come from the sample and their total time is scaled up
+ * from it. Every other operation times every call. Either way recording is cheap enough to leave on.
+ *
+ * The figures can be pulled with snapshot, or read over JMX once registerMBean has been called.
+ */
+public final class InventoryMetrics {
+
+    /** The name the MBean is registered under. */
+    public static final String OBJECT_NAME = "Model:type=InventoryMetrics";
+
+    private static final long DISABLED = Long.MIN_VALUE;
+    private static final long NOT_TIMED = Long.MIN_VALUE + 1;
+    /** Operations cheap enough that timing every call would be a large share of their cost time one call in this. */
+    private static final int SAMPLED = 16;
+    private static final Map<String, Timer> timers = new LinkedHashMap<>();
+    private static volatile boolean enabled = true;
+
+    static final Timer GET_NEW_PRODUCT_ID = timer("getNewProductId", SAMPLED);
+    static final Timer GET_NEW_PART_ID = timer("getNewPartId", SAMPLED);
+    static final Timer ALLOCATE_PART_IDS = timer("allocatePartIds", 1);
+    static final Timer ALLOCATE_PRODUCT_IDS = timer("allocateProductIds", 1);
+    static final Timer ADD_PART = timer("addPart", 1);
+    static final Timer ADD_PRODUCT = timer("addProduct", 1);
+    static final Timer ADD_PARTS = timer("addParts", 1);
+    static final Timer ADD_PRODUCTS = timer("addProducts", 1);
+    static final Timer LOOKUP_PART_BY_ID = timer("lookupPart(int)", SAMPLED);
+    static final Timer LOOKUP_PRODUCT_BY_ID = timer("lookupProduct(int)", SAMPLED);
+    static final Timer LOOKUP_PART_BY_NAME = timer("lookupPart(String)", 1);
+    static final Timer LOOKUP_PRODUCT_BY_NAME = timer("lookupProduct(String)", 1);
+    static final Timer LOOKUP_PARTS_BY_NAME = timer("lookupPartsByName", 1);
+    static final Timer LOOKUP_PRODUCTS_BY_NAME = timer("lookupProductsByName", 1);
+    static final Timer SEARCH_PARTS = timer("searchParts", 1);
+    static final Timer SEARCH_PRODUCTS = timer("searchProducts", 1);
+    static final Timer IS_PART_USED = timer("isPartUsed", SAMPLED);
+    static final Timer COUNT_PRODUCTS_USING_PART = timer("countProductsUsingPart", SAMPLED);
+    static final Timer GET_PRODUCTS_USING_PART = timer("getProductsUsingPart", 1);
+    static final Timer LOOKUP_PARTS_BY_VENDOR = timer("lookupPartsByVendor", 1);
+    static final Timer COUNT_PARTS_BY_VENDOR = timer("countPartsByVendor", SAMPLED);
+    static final Timer GET_VENDORS = timer("getVendors", 1);
+    static final Timer UPDATE_VENDOR_PRICES = timer("updateVendorPrices", 1);
+    static final Timer LOOKUP_PARTS_BY_MACHINE = timer("lookupPartsByMachine", 1);
+    static final Timer GET_MACHINE_LOAD = timer("getMachineLoad", SAMPLED);
+    static final Timer GET_MACHINE_LOADS = timer("getMachineLoads", 1);
+    static final Timer GET_TOTAL_MATERIAL_COST = timer("getTotalMaterialCost", SAMPLED);
+    static final Timer GET_TOTAL_PART_VALUE = timer("getTotalPartValue", 1);
+    static final Timer GET_TOTAL_PART_STOCK = timer("getTotalPartStock", 1);
+    static final Timer GET_LOW_STOCK_PARTS = timer("getLowStockParts", 1);
+    static final Timer UPDATE_PART = timer("updatePart", 1);
+    static final Timer UPDATE_PRODUCT = timer("updateProduct", 1);
+    static final Timer UPDATE_PART_BY_ID = timer("updatePartById", 1);
+    static final Timer UPDATE_PRODUCT_BY_ID = timer("updateProductById", 1);
+    static final Timer REPLACE_PART = timer("replacePart", 1);
+    static final Timer REPLACE_PRODUCT = timer("replaceProduct", 1);
+    static final Timer UPDATE_PARTS = timer("updateParts", 1);
+    static final Timer UPDATE_PRODUCTS = timer("updateProducts", 1);
+    static final Timer DELETE_PART = timer("deletePart", 1);
+    static final Timer DELETE_PART_BY_ID = timer("deletePartById", 1);
+    static final Timer DELETE_PRODUCT = timer("deleteProduct", 1);
+    static final Timer DELETE_PRODUCT_BY_ID = timer("deleteProductById", 1);
+    static final Timer DELETE_PARTS = timer("deleteParts", 1);
+    static final Timer DELETE_PRODUCTS = timer("deleteProducts", 1);
+    static final Timer BATCH = timer("batch", 1);
+    static final Timer GET_PARTS_SNAPSHOT = timer("getPartsSnapshot", 1);
+    static final Timer GET_PRODUCTS_SNAPSHOT = timer("getProductsSnapshot", 1);
+    static final Timer SNAPSHOT = timer("snapshot", SAMPLED);
+    static final Timer ADD_ASSOCIATED_PART = timer("Product.addAssociatedPart", 1);
+    static final Timer DELETE_ASSOCIATED_PART = timer("Product.deleteAssociatedPart", 1);
+
+    private InventoryMetrics() {
+    }
+
+    /**
+     * Turns recording on or off. It is on from the start.
+     * @param on true to record
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Returns whether calls are being recorded.
+     * @return true while recording
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the figures for every operation, in the order the operations are declared in Inventory.
+     * @return one entry per operation, including those never called
+     */
+    public static List<OperationStats> snapshot() {
+        List<OperationStats> stats = new ArrayList<>(timers.size());
+        for (Timer timer : timers.values()) {
+            stats.add(timer.snapshot());
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * Returns the figures for one operation.
+     * @param operation the operation's name as reported by OperationStats.getOperation
+     * @return the figures, or null if there is no such operation
+     */
+    public static OperationStats snapshot(String operation) {
+        Timer timer = timers.get(operation);
+        return timer == null ? null : timer.snapshot();
+    }
+
+    /**
+     * Sets every count and histogram back to zero. Calls that finish while the reset is running may be counted in
+     * some figures and not others.
+     */
+    public static void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * Publishes the figures on the platform MBean server under OBJECT_NAME. Calling it again does nothing.
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public static synchronized void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already published
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the inventory metrics MBean", e);
+        }
+    }
+
+    private static Timer timer(String operation, int sampleEvery) {
+        Timer timer = new Timer(operation, sampleEvery);
+        timers.put(operation, timer);
+        return timer;
+    }
+
+    /**
+     * The counts and histogram of one operation.
+     */
+    static final class Timer {
+        /** The number of buckets for each power of two, as a power of two. */
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+        /** Durations from 2^40 ns, about eighteen minutes, up all go in the last bucket. */
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = SUB + (MAX_EXPONENT - SUB_BITS + 1) * SUB;
+
+        private final String operation;
+        private final int sampleMask;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Timer(String operation, int sampleEvery) {
+            this.operation = operation;
+            this.sampleMask = sampleEvery - 1;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Called at the start of an operation.
+         * @return the start time to pass to record
+         */
+        long start() {
+            if (!enabled) {
+                return DISABLED;
+            }
+            if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+                return NOT_TIMED;
+            }
+            return System.nanoTime();
+        }
+
+        /**
+         * Records one call that began at the given start time.
+         * @param started the value start returned when the call began
+         */
+        void record(long started) {
+            if (started == DISABLED) {
+                return;
+            }
+            calls.increment();
+            if (started == NOT_TIMED) {
+                return;
+            }
+            long nanos = Math.max(0, System.nanoTime() - started);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[bucket(nanos)].increment();
+        }
+
+        OperationStats snapshot() {
+            long[] counts = new long[BUCKETS];
+            long timed = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                timed += counts[i];
+            }
+            long count = calls.sum();
+            long total = totalNanos.sum();
+            if (timed > 0 && count > timed) {
+                total = (long) ((double) total * count / timed);
+            }
+            long max = maxNanos.get();
+            return new OperationStats(operation, count, timed, total, max,
+                    percentile(counts, timed, 0.50, max), percentile(counts, timed, 0.90, max),
+                    percentile(counts, timed, 0.99, max), percentile(counts, timed, 0.999, max));
+        }
+
+        void reset() {
+            calls.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+
+        /**
+         * Returns the highest duration in the bucket holding the given fraction of the calls, or the longest call if
+         * that is lower.
+         */
+        private static long percentile(long[] counts, long recorded, double fraction, long max) {
+            if (recorded == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(recorded * fraction);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < SUB) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB - 1);
+            return SUB + (exponent - SUB_BITS) * SUB + sub;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB) {
+                return bucket;
+            }
+            if (bucket == BUCKETS - 1) {
+                return Long.MAX_VALUE;
+            }
+            int exponent = (bucket - SUB) / SUB + SUB_BITS;
+            int sub = (bucket - SUB) % SUB;
+            return ((long) (SUB + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+    }
+
+    /**
+     * The figures published over JMX.
+     */
+    public interface InventoryMetricsMXBean {
+
+        /**
+         * Returns the figures for every operation.
+         * @return one entry per operation
+         */
+        List<OperationStats> getOperations();
+
+        /**
+         * Returns the number of parts in the inventory.
+         * @return the part count
+         */
+        int getPartCount();
+
+        /**
+         * Returns the number of products in the inventory.
+         * @return the product count
+         */
+        int getProductCount();
+
+        /**
+         * Returns whether calls are being recorded.
+         * @return true while recording
+         */
+        boolean isEnabled();
+
+        /**
+         * Turns recording on or off.
+         * @param enabled true to record
+         */
+        void setEnabled(boolean enabled);
+
+        /**
+         * Sets every count and histogram back to zero.
+         */
+        void reset();
+    }
+
+    private static final class Bean implements InventoryMetricsMXBean {
+
+        @Override
+        public List<OperationStats> getOperations() {
+            return snapshot();
+        }
+
+        @Override
+        public int getPartCount() {
+            return Inventory.readState((parts, products) -> parts.size());
+        }
+
+        @Override
+        public int getProductCount() {
+            return Inventory.readState((parts, products) -> products.size());
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return InventoryMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            InventoryMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            InventoryMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package Model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the Inventory durable with a write-ahead log and periodic snapshots.
+ * Once opened it listens to the Inventory and appends one record per change to the log, which is a cheap sequential
+ * write; when every change must reach the disk, the log is forced once the Inventory's write lock is released.
+ * After a configurable number of records it takes a snapshot in the background, starts a new log segment and
+ * deletes the segments the snapshot covers; a background snapshot that fails is logged and the log keeps every
+ * change until the next one succeeds. Opening it loads the latest snapshot and replays the log written since, all
+ * in one Inventory.batch. Removals are logged by ID, so replaying one never depends on the position of the item.
+ */
+public class InventoryPersistence implements InventoryListener, AutoCloseable {
+
+    private static final Logger LOG = System.getLogger(InventoryPersistence.class.getName());
+
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
+
+    private static final byte PART_ADDED = 1;
+    private static final byte PART_REPLACED = 2;
+    private static final byte PART_REMOVED = 3;
+    private static final byte PART_CHANGED = 4;
+    private static final byte PRODUCT_ADDED = 5;
+    private static final byte PRODUCT_REPLACED = 6;
+    private static final byte PRODUCT_REMOVED = 7;
+    private static final byte PRODUCT_CHANGED = 8;
+    private static final byte PART_REMOVED_BY_ID = 9;
+    private static final byte PRODUCT_REMOVED_BY_ID = 10;
+
+    private final Path directory;
+    private final WriteAheadLog log;
+    private final int snapshotEvery;
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "inventory-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int recordsSinceSnapshot;
+    private volatile boolean snapshotPending;
+
+    private InventoryPersistence(Path directory, WriteAheadLog log, int snapshotEvery) {
+        this.directory = directory;
+        this.log = log;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    /**
+     * Opens persistence with the settings given by system properties: inventory.dir (default .softwaretry2 in the
+     * user's home directory), inventory.fsync (ALWAYS, INTERVAL or NEVER, default INTERVAL),
+     * inventory.fsyncIntervalMillis (default 200) and inventory.snapshotEvery (default 10000 records).
+     * @return the open persistence
+     * @throws IOException if the stored inventory cannot be loaded
+     */
+    public static InventoryPersistence openDefault() throws IOException {
+        Path directory = Paths.get(System.getProperty("inventory.dir",
+                Paths.get(System.getProperty("user.home"), ".softwaretry2").toString()));
+        WriteAheadLog.FsyncPolicy policy = WriteAheadLog.FsyncPolicy.valueOf(
+                System.getProperty("inventory.fsync", "INTERVAL").toUpperCase());
+        long interval = Long.getLong("inventory.fsyncIntervalMillis", 200);
+        int snapshotEvery = Integer.getInteger("inventory.snapshotEvery", 10000);
+        return open(directory, policy, interval, snapshotEvery);
+    }
+
+    /**
+     * Loads the latest snapshot and replays the log into the Inventory, then starts logging every change.
+     * The Inventory should be empty when this is called.
+     * @param directory the directory holding the snapshot and the log
+     * @param policy when log records are forced to disk
+     * @param intervalMillis how often the log is forced under the INTERVAL policy
+     * @param snapshotEvery the number of log records after which a new snapshot is taken
+     * @return the open persistence
+     * @throws IOException if the stored inventory cannot be loaded
+     */
+    public static InventoryPersistence open(Path directory, WriteAheadLog.FsyncPolicy policy, long intervalMillis,
+                                            int snapshotEvery) throws IOException {
+        Files.createDirectories(directory);
+        long[] next = new long[1];
+        try {
+            Inventory.batch(tx -> {
+                try {
+                    long covered = InventorySnapshot.load(directory.resolve(SNAPSHOT_FILE));
+                    next[0] = covered;
+                    for (long generation : WriteAheadLog.generations(directory)) {
+                        if (generation >= covered) {
+                            WriteAheadLog.replay(directory, generation, InventoryPersistence::apply);
+                        }
+                        next[0] = Math.max(next[0], generation);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        InventoryPersistence persistence = new InventoryPersistence(directory,
+                new WriteAheadLog(directory, next[0] + 1, policy, intervalMillis), snapshotEvery);
+        Inventory.addListener(persistence);
+        return persistence;
+    }
+
+    /**
+     * Writes a snapshot of the whole inventory and deletes the log segments it covers. A view of the inventory is
+     * taken and the log switched to a new segment under the Inventory's read lock, so the snapshot and the log agree
+     * on where one ends and the other begins; the view is encoded and the file written after the lock is released,
+     * so changes to the inventory do not wait for them. The records are streamed to the file as they are encoded.
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void snapshot() throws IOException {
+        InventoryView[] view = new InventoryView[1];
+        long generation = Inventory.readState((parts, products) -> {
+            try {
+                long first = log.getGeneration() + 1;
+                view[0] = Inventory.snapshot();
+                log.rotate(first);
+                return first;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), SNAPSHOT_BUFFER_SIZE));
+            InventorySnapshot.write(out, generation, view[0]);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.deleteBefore(directory, generation);
+    }
+
+    /**
+     * Stops logging, forces the log to disk and closes it.
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        Inventory.removeListener(this);
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    @Override
+    public void partAdded(int index, Part part) {
+        begin();
+        write(() -> InventoryCodec.writePart(recordOut, part));
+        end(PART_ADDED);
+    }
+
+    @Override
+    public void partReplaced(int index, Part oldPart, Part newPart) {
+        begin();
+        write(() -> {
+            recordOut.writeInt(index);
+            InventoryCodec.writePart(recordOut, newPart);
+        });
+        end(PART_REPLACED);
+    }
+
+    @Override
+    public void partRemoved(int index, Part part) {
+        begin();
+        write(() -> recordOut.writeInt(part.getId()));
+        end(PART_REMOVED_BY_ID);
+    }
+
+    @Override
+    public void partChanged(Part part, int oldId) {
+        begin();
+        write(() -> {
+            recordOut.writeInt(oldId);
+            InventoryCodec.writePart(recordOut, part);
+        });
+        end(PART_CHANGED);
+    }
+
+    @Override
+    public void productAdded(int index, Product product) {
+        begin();
+        write(() -> InventoryCodec.writeProduct(recordOut, product));
+        end(PRODUCT_ADDED);
+    }
+
+    @Override
+    public void productReplaced(int index, Product oldProduct, Product newProduct) {
+        begin();
+        write(() -> {
+            recordOut.writeInt(index);
+            InventoryCodec.writeProduct(recordOut, newProduct);
+        });
+        end(PRODUCT_REPLACED);
+    }
+
+    @Override
+    public void productRemoved(int index, Product product) {
+        begin();
+        write(() -> recordOut.writeInt(product.getId()));
+        end(PRODUCT_REMOVED_BY_ID);
+    }
+
+    @Override
+    public void productChanged(Product product, int oldId) {
+        begin();
+        write(() -> {
+            recordOut.writeInt(oldId);
+            InventoryCodec.writeProduct(recordOut, product);
+        });
+        end(PRODUCT_CHANGED);
+    }
+
+    /**
+     * Forces the records of the changes just made to disk if the fsync policy asks for it. This runs after the
+     * Inventory's write lock is released, so other threads keep changing the inventory while the disk catches up,
+     * and the changes they make meanwhile are forced together by the next thread to get here.
+     */
+    @Override
+    public void writeLockReleased() {
+        log.commit();
+    }
+
+    /**
+     * Applies one logged change to the Inventory during replay. Logs written before removals were logged by ID hold
+     * PART_REMOVED and PRODUCT_REMOVED records, which give the position of the removed item instead.
+     */
+    private static void apply(byte type, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Inventory inventory = new Inventory();
+        switch (type) {
+            case PART_ADDED:
+                Inventory.addPart(InventoryCodec.readPart(in));
+                break;
+            case PART_REPLACED:
+                Inventory.updatePart(in.readInt(), InventoryCodec.readPart(in));
+                break;
+            case PART_REMOVED:
+                Inventory.deletePart(Inventory.partAt(in.readInt()));
+                break;
+            case PART_REMOVED_BY_ID:
+                Inventory.deletePartById(in.readInt());
+                break;
+            case PART_CHANGED: {
+                Part part = inventory.lookupPart(in.readInt());
+                Part logged = InventoryCodec.readPart(in);
+                if (part != null) {
+                    InventoryCodec.copyPart(part, logged);
+                }
+                break;
+            }
+            case PRODUCT_ADDED:
+                Inventory.addProduct(InventoryCodec.readProduct(in));
+                break;
+            case PRODUCT_REPLACED:
+                Inventory.updateProduct(in.readInt(), InventoryCodec.readProduct(in));
+                break;
+            case PRODUCT_REMOVED:
+                Inventory.deleteProduct(Inventory.productAt(in.readInt()));
+                break;
+            case PRODUCT_REMOVED_BY_ID:
+                Inventory.deleteProductById(in.readInt());
+                break;
+            case PRODUCT_CHANGED: {
+                Product product = inventory.lookupProduct(in.readInt());
+                Product logged = InventoryCodec.readProduct(in);
+                if (product != null) {
+                    InventoryCodec.copyProduct(product, logged);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown inventory log record type " + type);
+        }
+    }
+
+    /**
+     * Listener methods run one at a time under the Inventory's write lock, so they can share one record buffer.
+     */
+    private void begin() {
+        record.reset();
+    }
+
+    private void write(RecordWriter writer) {
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void end(byte type) {
+        log.append(type, record.array(), record.size());
+        if (++recordsSinceSnapshot >= snapshotEvery && !snapshotPending) {
+            snapshotPending = true;
+            recordsSinceSnapshot = 0;
+            snapshotter.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    // the log still holds every change, so the next snapshot simply covers more of it
+                    LOG.log(Level.ERROR, "Could not take an inventory snapshot in " + directory, e);
+                } finally {
+                    snapshotPending = false;
+                }
+            });
+        }
+    }
+
+    private interface RecordWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * A ByteArrayOutputStream that exposes its array so records can be appended without copying.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package com.example.softwaretry2;
+
+import Model.InHouse;
+import Model.Inventory;
+import Model.Outsourced;
+import Model.Part;
+import Model.PartState;
+import Model.Product;
+import Model.ProductState;
+import Model.StockReservations;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An HTTP/JSON service over the Inventory, so other programs can read and change the inventory without the JavaFX
+ * screens. It runs on the JDK's built-in HttpServer and handles every request on a thread of its own: a virtual
+ * thread when the runtime has them, otherwise a thread from a fixed pool.
+ *
+ * The service has the same rules as the screens: min must be greater than 0 and less than max, stock must be between
+ * them, a part cannot be deleted while a product uses it and a product cannot be deleted while it has associated
+ * parts. Every change is made in one Inventory.batch, so the checks and the change cannot be separated by another
+ * request.
+ *
+ * Endpoints, where {kind} is parts or products:
+ *   GET    /{kind}                  every item, or ?offset=&amp;limit= for a page of them
+ *   GET    /{kind}?name=...         items with exactly that name; add &amp;ignoreCase=true to ignore case
+ *   GET    /{kind}?q=...            items whose name or ID contains the text, ignoring case
+ *   GET    /parts?vendor=...        outsourced parts from the company with exactly that name
+ *   GET    /parts?machine=...       in-house parts made on the machine with that ID
+ *   GET    /{kind}/{id}             one item
+ *   POST   /{kind}                  adds an item and returns it with its new ID
+ *   PUT    /{kind}/{id}             replaces an item in place, keeping its ID, its position and the products using it
+ *   DELETE /{kind}/{id}             deletes an item
+ *   POST   /{kind}/{id}/stock       adds {"delta": n} units to the stock, or takes them away when n is negative
+ *
+ * A part is sent as {"name", "price", "stock", "min", "max"} plus either "machineId" for an in-house part or
+ * "companyName" for an outsourced one. A product is sent as {"name", "price", "stock", "min", "max"} plus an optional
+ * "associatedParts" array of part IDs; a PUT without it keeps the product's current parts. Errors are returned as
+ * {"error": message} with status 400 for a bad request, 404 for an unknown ID, 405 for an unsupported method and 409
+ * for a change the inventory's rules refuse.
+ * */
+public class InventoryServer implements AutoCloseable {
+
+    private static final Logger LOG = System.getLogger(InventoryServer.class.getName());
+
+    private static final int BACKLOG = 1024;
+    private static final int FALLBACK_THREADS_PER_CORE = 8;
+
+    static {
+        // Without TCP_NODELAY each small response on a kept-alive connection waits out the client's delayed ACK,
+        // which caps a connection at a few dozen requests a second. The HttpServer reads this once, when it is first
+        // used, so it must be set before any server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Inventory inventory = new Inventory();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private InventoryServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving the inventory.
+     * @param address the address and port to listen on; port 0 picks a free port
+     * @return the running server
+     * @throws IOException if the address cannot be bound
+     * */
+    public static InventoryServer start(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, BACKLOG);
+        ExecutorService executor = newRequestExecutor();
+        InventoryServer inventoryServer = new InventoryServer(server, executor);
+        server.createContext("/parts", exchange -> inventoryServer.handle(exchange, true));
+        server.createContext("/products", exchange -> inventoryServer.handle(exchange, false));
+        server.setExecutor(executor);
+        server.start();
+        return inventoryServer;
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     * @return the port
+     * */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, letting requests already running finish for up to a second, and tells the inventory's
+     * listeners about any stock changes still waiting to be reported.
+     * */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        StockReservations.flush();
+    }
+
+    /**
+     * Creates one virtual thread per request when the runtime supports virtual threads. The project is compiled for
+     * Java 17, which has none, so the factory is looked up when the server starts rather than called directly.
+     * */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Runtime.getRuntime().availableProcessors() * FALLBACK_THREADS_PER_CORE;
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "inventory-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Answers a request, closing the exchange even if the answer cannot be sent, so the connection is never left
+     * waiting for a response.
+     * */
+    private void handle(HttpExchange exchange, boolean parts) throws IOException {
+        try {
+            respond(exchange, parts);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, boolean parts) throws IOException {
+        int status;
+        String body;
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length < 2 || !path[1].equals(parts ? "parts" : "products")) {
+                throw new RequestException(404, "No such resource");
+            }
+            if (path.length == 2) {
+                if (method.equals("GET")) {
+                    status = 200;
+                    body = parts ? listParts(query(exchange)) : listProducts(query(exchange));
+                } else if (method.equals("POST")) {
+                    status = 201;
+                    body = parts ? createPart(readBody(exchange)) : createProduct(readBody(exchange));
+                } else {
+                    throw new RequestException(405, "Use GET or POST");
+                }
+            } else if (path.length == 3) {
+                int id = parseId(path[2]);
+                if (method.equals("GET")) {
+                    status = 200;
+                    body = parts ? toJson(findPart(id)) : toJson(findProduct(id));
+                } else if (method.equals("PUT")) {
+                    status = 200;
+                    body = parts ? updatePart(id, readBody(exchange)) : updateProduct(id, readBody(exchange));
+                } else if (method.equals("DELETE")) {
+                    if (parts) {
+                        deletePart(id);
+                    } else {
+                        deleteProduct(id);
+                    }
+                    status = 204;
+                    body = null;
+                } else {
+                    throw new RequestException(405, "Use GET, PUT or DELETE");
+                }
+            } else if (path.length == 4 && path[3].equals("stock")) {
+                if (!method.equals("POST")) {
+                    throw new RequestException(405, "Use POST");
+                }
+                status = 200;
+                body = adjustStock(parseId(path[2]), parts, readBody(exchange));
+            } else {
+                throw new RequestException(404, "No such resource");
+            }
+        } catch (RequestException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IOException e) {
+            status = 400;
+            body = error("Could not read the request body");
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.log(Level.ERROR, "Could not handle " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI(), e);
+            status = 500;
+            body = error("Internal error");
+        }
+        send(exchange, status, body);
+    }
+
+    private String listParts(Map<String, String> query) {
+        List<? extends Part> found;
+        if (query.containsKey("name")) {
+            found = Inventory.lookupPartsByName(query.get("name"), Boolean.parseBoolean(query.get("ignoreCase")));
+        } else if (query.containsKey("q")) {
+            found = Inventory.searchParts(query.get("q"));
+        } else if (query.containsKey("vendor")) {
+            found = Inventory.lookupPartsByVendor(query.get("vendor"));
+        } else if (query.containsKey("machine")) {
+            found = Inventory.lookupPartsByMachine(parseMachineId(query.get("machine")));
+        } else {
+            return listPartStates(page(Inventory.snapshot().getParts(), query));
+        }
+        StringBuilder out = new StringBuilder(found.size() * 96 + 2).append('[');
+        for (int i = 0; i < found.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writePart(out, found.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    private String listProducts(Map<String, String> query) {
+        List<Product> found;
+        if (query.containsKey("name")) {
+            found = Inventory.lookupProductsByName(query.get("name"), Boolean.parseBoolean(query.get("ignoreCase")));
+        } else if (query.containsKey("q")) {
+            found = Inventory.searchProducts(query.get("q"));
+        } else {
+            return listProductStates(page(Inventory.snapshot().getProducts(), query));
+        }
+        StringBuilder out = new StringBuilder(found.size() * 128 + 2).append('[');
+        for (int i = 0; i < found.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writeProduct(out, found.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    /**
+     * Lists a page of a view of the inventory, so that paging through every part neither copies the inventory nor
+     * holds its lock.
+     */
+    private static String listPartStates(List<PartState> found) {
+        StringBuilder out = new StringBuilder(found.size() * 96 + 2).append('[');
+        for (int i = 0; i < found.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writePart(out, found.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    private static String listProductStates(List<ProductState> found) {
+        StringBuilder out = new StringBuilder(found.size() * 128 + 2).append('[');
+        for (int i = 0; i < found.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writeProduct(out, found.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    private static <T> List<T> page(List<T> items, Map<String, String> query) {
+        int offset = query.containsKey("offset") ? parseCount(query.get("offset"), "offset") : 0;
+        int limit = query.containsKey("limit") ? parseCount(query.get("limit"), "limit") : items.size();
+        int from = Math.min(offset, items.size());
+        return items.subList(from, (int) Math.min((long) from + limit, items.size()));
+    }
+
+    private String createPart(Map<String, Object> body) {
+        Part part = newPart(Inventory.getNewPartId(), body);
+        Inventory.addPart(part);
+        return toJson(part);
+    }
+
+    private String createProduct(Map<String, Object> body) {
+        Product product = newProduct(Inventory.getNewProductId(), body);
+        Inventory.batch(tx -> {
+            List<Part> associated = resolveParts(body.get("associatedParts"));
+            if (associated != null) {
+                for (Part part : associated) {
+                    product.addAssociatedPart(part);
+                }
+            }
+            tx.addProduct(product);
+        });
+        return toJson(product);
+    }
+
+    private String updatePart(int id, Map<String, Object> body) {
+        Part part = newPart(id, body);
+        if (!Inventory.replacePart(id, part)) {
+            throw new RequestException(404, "No part with ID " + id);
+        }
+        return toJson(part);
+    }
+
+    private String updateProduct(int id, Map<String, Object> body) {
+        Product product = newProduct(id, body);
+        RequestException[] refused = new RequestException[1];
+        Inventory.batch(tx -> {
+            Product current = inventory.lookupProduct(id);
+            if (current == null) {
+                refused[0] = new RequestException(404, "No product with ID " + id);
+                return;
+            }
+            List<Part> associated = resolveParts(body.get("associatedParts"));
+            for (Part part : associated != null ? associated : current.getAllAssociatedParts()) {
+                product.addAssociatedPart(part);
+            }
+            Inventory.replaceProduct(id, product);
+        });
+        throwIfRefused(refused);
+        return toJson(product);
+    }
+
+    private void deletePart(int id) {
+        RequestException[] refused = new RequestException[1];
+        Inventory.batch(tx -> {
+            Part part = inventory.lookupPart(id);
+            if (part == null) {
+                refused[0] = new RequestException(404, "No part with ID " + id);
+            } else if (Inventory.isPartUsed(id)) {
+                refused[0] = new RequestException(409,
+                        "The part must be removed from every product that uses it before deletion.");
+            } else {
+                Inventory.deletePartById(id);
+            }
+        });
+        throwIfRefused(refused);
+    }
+
+    private void deleteProduct(int id) {
+        RequestException[] refused = new RequestException[1];
+        Inventory.batch(tx -> {
+            Product product = inventory.lookupProduct(id);
+            if (product == null) {
+                refused[0] = new RequestException(404, "No product with ID " + id);
+            } else if (!product.getAllAssociatedParts().isEmpty()) {
+                refused[0] = new RequestException(409,
+                        "The product's associated parts must be removed before deletion.");
+            } else {
+                Inventory.deleteProductById(id);
+            }
+        });
+        throwIfRefused(refused);
+    }
+
+    /**
+     * Changes stock through StockReservations, so concurrent adjustments never lose units and never take the stock
+     * outside its min and max, without taking the Inventory's write lock for the change itself. The change is
+     * flushed to the listeners before the response is sent, so a client is only told it succeeded once it is in the
+     * log.
+     * */
+    private String adjustStock(int id, boolean parts, Map<String, Object> body) {
+        int delta = intField(body, "delta");
+        if (parts) {
+            Part part = findPart(id);
+            if (!StockReservations.adjustBy(part, delta)) {
+                throw new RequestException(409, "Inventory must be a number equal to or between Min and Max");
+            }
+            StockReservations.flush(part);
+            return toJson(part);
+        }
+        Product product = findProduct(id);
+        if (!StockReservations.adjustBy(product, delta)) {
+            throw new RequestException(409, "Inventory must be a number equal to or between Min and Max");
+        }
+        StockReservations.flush(product);
+        return toJson(product);
+    }
+
+    private Part findPart(int id) {
+        Part part = inventory.lookupPart(id);
+        if (part == null) {
+            throw new RequestException(404, "No part with ID " + id);
+        }
+        return part;
+    }
+
+    private Product findProduct(int id) {
+        Product product = inventory.lookupProduct(id);
+        if (product == null) {
+            throw new RequestException(404, "No product with ID " + id);
+        }
+        return product;
+    }
+
+    /**
+     * Looks up the parts named by an array of IDs. Called inside a batch so none of them can be deleted before the
+     * product that uses them is added.
+     * */
+    private List<Part> resolveParts(Object ids) {
+        if (ids == null) {
+            return null;
+        }
+        if (!(ids instanceof List)) {
+            throw new IllegalArgumentException("associatedParts must be an array of part IDs");
+        }
+        List<Part> found = new ArrayList<>();
+        for (Object id : (List<?>) ids) {
+            int partId = toInt(id, "associatedParts");
+            Part part = inventory.lookupPart(partId);
+            if (part == null) {
+                throw new IllegalArgumentException("No part with ID " + partId);
+            }
+            found.add(part);
+        }
+        return found;
+    }
+
+    private static Part newPart(int id, Map<String, Object> body) {
+        String name = stringField(body, "name");
+        double price = doubleField(body, "price");
+        int stock = intField(body, "stock");
+        int min = intField(body, "min");
+        int max = intField(body, "max");
+        checkLevels(min, max, stock);
+        if (body.containsKey("machineId")) {
+            return new InHouse(id, name, price, stock, min, max, intField(body, "machineId"));
+        }
+        if (body.containsKey("companyName")) {
+            return new Outsourced(id, name, price, stock, min, max, stringField(body, "companyName"));
+        }
+        throw new IllegalArgumentException("A part needs a machineId or a companyName");
+    }
+
+    private static Product newProduct(int id, Map<String, Object> body) {
+        String name = stringField(body, "name");
+        double price = doubleField(body, "price");
+        int stock = intField(body, "stock");
+        int min = intField(body, "min");
+        int max = intField(body, "max");
+        checkLevels(min, max, stock);
+        return new Product(id, name, price, stock, min, max);
+    }
+
+    private static void checkLevels(int min, int max, int stock) {
+        if (!Inventory.isMinValid(min, max)) {
+            throw new IllegalArgumentException("Min must be a number greater than 0 and less than Max.");
+        }
+        if (!Inventory.isInventoryValid(min, max, stock)) {
+            throw new IllegalArgumentException("Inventory must be a number equal to or between Min and Max");
+        }
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String) || ((String) value).isBlank()) {
+            throw new IllegalArgumentException(name + " must be a non-empty string");
+        }
+        return (String) value;
+    }
+
+    private static double doubleField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    private static int intField(Map<String, Object> body, String name) {
+        return toInt(body.get(name), name);
+    }
+
+    private static int toInt(Object value, String name) {
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+        double number = (Double) value;
+        if (number != Math.rint(number) || number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+        return (int) number;
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new RequestException(404, "No such resource");
+        }
+    }
+
+    private static int parseMachineId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("machine must be a whole number");
+        }
+    }
+
+    private static int parseCount(String text, String name) {
+        try {
+            int count = Integer.parseInt(text);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(name + " must be a whole number of at least 0");
+    }
+
+    private static void throwIfRefused(RequestException[] refused) {
+        if (refused[0] != null) {
+            throw refused[0];
+        }
+    }
+
+    private static String toJson(Part part) {
+        StringBuilder out = new StringBuilder(96);
+        writePart(out, part);
+        return out.toString();
+    }
+
+    private static String toJson(Product product) {
+        StringBuilder out = new StringBuilder(128);
+        writeProduct(out, product);
+        return out.toString();
+    }
+
+    private static void writePart(StringBuilder out, Part part) {
+        out.append("{\"id\":").append(part.getId()).append(",\"type\":");
+        Json.writeString(out, part instanceof InHouse ? "InHouse" : "Outsourced");
+        writeCommon(out, part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+        if (part instanceof InHouse) {
+            out.append(",\"machineId\":").append(((InHouse) part).getMachineId());
+        } else if (part instanceof Outsourced) {
+            out.append(",\"companyName\":");
+            Json.writeString(out, ((Outsourced) part).getCompanyName());
+        }
+        out.append('}');
+    }
+
+    private static void writeProduct(StringBuilder out, Product product) {
+        out.append("{\"id\":").append(product.getId());
+        writeCommon(out, product.getName(), product.getPrice(), product.getStock(), product.getMin(),
+                product.getMax());
+        out.append(",\"materialCost\":");
+        Json.writeNumber(out, product.getMaterialCost());
+        out.append(",\"associatedParts\":[");
+        List<Part> associated = product.getAllAssociatedParts();
+        for (int i = 0; i < associated.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(associated.get(i).getId());
+        }
+        out.append("]}");
+    }
+
+    private static void writePart(StringBuilder out, PartState part) {
+        out.append("{\"id\":").append(part.getId()).append(",\"type\":");
+        Json.writeString(out, part.isInHouse() ? "InHouse" : "Outsourced");
+        writeCommon(out, part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+        if (part.isInHouse()) {
+            out.append(",\"machineId\":").append(part.getMachineId());
+        } else if (part.getPart() instanceof Outsourced) {
+            out.append(",\"companyName\":");
+            Json.writeString(out, part.getCompanyName());
+        }
+        out.append('}');
+    }
+
+    private static void writeProduct(StringBuilder out, ProductState product) {
+        out.append("{\"id\":").append(product.getId());
+        writeCommon(out, product.getName(), product.getPrice(), product.getStock(), product.getMin(),
+                product.getMax());
+        out.append(",\"materialCost\":");
+        Json.writeNumber(out, product.getMaterialCost());
+        out.append(",\"associatedParts\":[");
+        for (int i = 0; i < product.getAssociatedPartCount(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(product.getAssociatedPartId(i));
+        }
+        out.append("]}");
+    }
+
+    private static void writeCommon(StringBuilder out, String name, double price, int stock, int min, int max) {
+        out.append(",\"name\":");
+        Json.writeString(out, name);
+        out.append(",\"price\":");
+        Json.writeNumber(out, price);
+        out.append(",\"stock\":").append(stock).append(",\"min\":").append(min).append(",\"max\":").append(max);
+    }
+
+    private static String error(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.writeString(out, message);
+        return out.append('}').toString();
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> query = new HashMap<>();
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        try (exchange) {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * A request the service refuses, with the HTTP status to refuse it with.
+     * */
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
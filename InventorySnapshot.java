@@ -0,0 +1,348 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compacted copy of the whole inventory, written periodically so that startup only has to replay the changes
+ * logged since. A snapshot records the generation of the first log segment it does not cover.
+ *
+ * Version 2 of the format is laid out so that it can be read straight out of a memory-mapped file:
+ * a fixed header, a table of fixed-width part records, a table of fixed-width product records, one array holding
+ * the associated part IDs of every product, and a table of UTF-8 strings that the records refer to by offset.
+ * Because every record has the same width, any record can be read without reading the ones before it, and repeated
+ * strings such as company names are stored once. Only the Reader is lazy: opening it maps the file and reads the
+ * header, and costs the same however large the snapshot is. Loading into the Inventory is eager: load decodes every
+ * record and adds it before returning, because the Inventory holds every part and product as an object and indexes
+ * each one as it is added. Decoding is the smaller part of that cost; most of it is building the objects and
+ * indexes, which a lazy view over the file would not avoid as long as the Inventory works that way.
+ */
+class InventorySnapshot {
+
+    private static final int MAGIC = 0x494E5653;
+    private static final int VERSION = 2;
+
+    /** magic, version, generation, part count, product count and the offsets of the four sections */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 * 4;
+    /** kind, id, price, stock, min, max, name and the machine ID or company name */
+    private static final int PART_SIZE = 1 + 4 + 8 + 4 + 4 + 4 + 4 + 4;
+    /** id, name, price, stock, min, max, first associated part ID and the number of associated parts */
+    private static final int PRODUCT_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    private InventorySnapshot() {
+    }
+
+    /**
+     * Writes every part and then every product of a view of the inventory in the current format.
+     * @param out the output to write to
+     * @param generation the first log generation not covered by the snapshot
+     * @param view the inventory to write
+     * @throws IOException if the output fails
+     */
+    static void write(DataOutputStream out, long generation, InventoryView view) throws IOException {
+        List<PartState> parts = view.getParts();
+        List<ProductState> products = view.getProducts();
+        StringTable strings = new StringTable();
+        int[] partNames = new int[parts.size()];
+        int[] partExtras = new int[parts.size()];
+        for (int i = 0; i < parts.size(); i++) {
+            PartState part = parts.get(i);
+            partNames[i] = strings.add(part.getName());
+            if (part.getPart() instanceof Outsourced) {
+                partExtras[i] = strings.add(part.getCompanyName());
+            } else if (part.isInHouse()) {
+                partExtras[i] = part.getMachineId();
+            }
+        }
+        int[] productNames = new int[products.size()];
+        long associationCount = 0;
+        for (int i = 0; i < products.size(); i++) {
+            ProductState product = products.get(i);
+            productNames[i] = strings.add(product.getName());
+            associationCount += product.getAssociatedPartCount();
+        }
+
+        long partsOffset = HEADER_SIZE;
+        long productsOffset = partsOffset + (long) parts.size() * PART_SIZE;
+        long associationsOffset = productsOffset + (long) products.size() * PRODUCT_SIZE;
+        long stringsOffset = associationsOffset + associationCount * Integer.BYTES;
+        if (stringsOffset + strings.size() > Integer.MAX_VALUE) {
+            throw new IOException("The inventory is too large for a single snapshot file");
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(generation);
+        out.writeInt(parts.size());
+        out.writeInt(products.size());
+        out.writeInt((int) partsOffset);
+        out.writeInt((int) productsOffset);
+        out.writeInt((int) associationsOffset);
+        out.writeInt((int) stringsOffset);
+
+        for (int i = 0; i < parts.size(); i++) {
+            PartState part = parts.get(i);
+            out.writeByte(part.getPart() instanceof Outsourced ? InventoryCodec.OUTSOURCED : InventoryCodec.IN_HOUSE);
+            out.writeInt(part.getId());
+            out.writeDouble(part.getPrice());
+            out.writeInt(part.getStock());
+            out.writeInt(part.getMin());
+            out.writeInt(part.getMax());
+            out.writeInt(partNames[i]);
+            out.writeInt(partExtras[i]);
+        }
+        int firstAssociation = 0;
+        for (int i = 0; i < products.size(); i++) {
+            ProductState product = products.get(i);
+            int associated = product.getAssociatedPartCount();
+            out.writeInt(product.getId());
+            out.writeInt(productNames[i]);
+            out.writeDouble(product.getPrice());
+            out.writeInt(product.getStock());
+            out.writeInt(product.getMin());
+            out.writeInt(product.getMax());
+            out.writeInt(firstAssociation);
+            out.writeInt(associated);
+            firstAssociation += associated;
+        }
+        for (ProductState product : products) {
+            for (int i = 0; i < product.getAssociatedPartCount(); i++) {
+                out.writeInt(product.getAssociatedPartId(i));
+            }
+        }
+        strings.writeTo(out);
+    }
+
+    /**
+     * Adds every part and product in a snapshot file to the Inventory, decoding every record before it returns.
+     * The whole load is one Inventory.batch, so it takes the write lock once and reaches the mirrored lists and
+     * the listeners as one change, and the associated parts of each product are filled in one step from the parts
+     * just read.
+     * @param file the snapshot file
+     * @return the first log generation not covered by the snapshot, or 0 if there is no snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    static long load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (Reader reader = Reader.open(file)) {
+            Inventory.batch(tx -> {
+                List<Part> parts = new ArrayList<>(reader.getPartCount());
+                IntHashMap<Part> partsById = new IntHashMap<>(reader.getPartCount());
+                for (int i = 0; i < reader.getPartCount(); i++) {
+                    Part part = reader.readPart(i);
+                    parts.add(part);
+                    partsById.put(part.getId(), part);
+                }
+                Inventory.addParts(parts);
+                List<Product> products = new ArrayList<>(reader.getProductCount());
+                for (int i = 0; i < reader.getProductCount(); i++) {
+                    products.add(reader.readProduct(i, partsById));
+                }
+                Inventory.addProducts(products);
+            });
+            return reader.getGeneration();
+        }
+    }
+
+    /**
+     * Reads the records of a snapshot file through a memory-mapped buffer.
+     * Opening a reader only maps the file and checks its header, and each record is decoded when it is asked for,
+     * in any order, without a copy through a stream. load asks for every record in turn.
+     */
+    static final class Reader implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final long generation;
+        private final int partCount;
+        private final int productCount;
+        private final int partsOffset;
+        private final int productsOffset;
+        private final int associationsOffset;
+        private final int stringsOffset;
+        private final IntHashMap<String> companies = new IntHashMap<>();
+
+        private Reader(FileChannel channel, ByteBuffer buffer) throws IOException {
+            this.channel = channel;
+            this.buffer = buffer;
+            generation = buffer.getLong(8);
+            partCount = buffer.getInt(16);
+            productCount = buffer.getInt(20);
+            partsOffset = buffer.getInt(24);
+            productsOffset = buffer.getInt(28);
+            associationsOffset = buffer.getInt(32);
+            stringsOffset = buffer.getInt(36);
+            if (partCount < 0 || productCount < 0
+                    || partsOffset + (long) partCount * PART_SIZE > productsOffset
+                    || productsOffset + (long) productCount * PRODUCT_SIZE > associationsOffset
+                    || associationsOffset > stringsOffset || stringsOffset > buffer.limit()) {
+                throw new IOException("Corrupt inventory snapshot");
+            }
+        }
+
+        /**
+         * Maps a snapshot file.
+         * @param file the snapshot file
+         * @return a reader over the file
+         * @throws IOException if the file cannot be mapped or is not a snapshot
+         */
+        static Reader open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Inventory snapshot is too large to map: " + file);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (size < 8 || buffer.getInt(0) != MAGIC) {
+                    throw new IOException("Not an inventory snapshot: " + file);
+                }
+                int version = buffer.getInt(4);
+                if (version != VERSION || size < HEADER_SIZE) {
+                    throw new IOException("Unsupported inventory snapshot version " + version + ": " + file);
+                }
+                return new Reader(channel, buffer);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Returns the first log generation not covered by the snapshot.
+         * @return the generation
+         */
+        long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Returns the number of parts in the snapshot.
+         * @return the part count
+         */
+        int getPartCount() {
+            return partCount;
+        }
+
+        /**
+         * Returns the number of products in the snapshot.
+         * @return the product count
+         */
+        int getProductCount() {
+            return productCount;
+        }
+
+        /**
+         * Decodes one part.
+         * @param index the position of the part in the snapshot
+         * @return a new part, not yet in the inventory
+         */
+        Part readPart(int index) {
+            int at = partsOffset + index * PART_SIZE;
+            byte kind = buffer.get(at);
+            int id = buffer.getInt(at + 1);
+            double price = buffer.getDouble(at + 5);
+            int stock = buffer.getInt(at + 13);
+            int min = buffer.getInt(at + 17);
+            int max = buffer.getInt(at + 21);
+            String name = string(buffer.getInt(at + 25));
+            int extra = buffer.getInt(at + 29);
+            if (kind == InventoryCodec.OUTSOURCED) {
+                String company = companies.get(extra);
+                if (company == null) {
+                    company = string(extra);
+                    companies.put(extra, company);
+                }
+                return new Outsourced(id, name, price, stock, min, max, company);
+            }
+            return new InHouse(id, name, price, stock, min, max, extra);
+        }
+
+        /**
+         * Decodes one product. Its associated parts are looked up among the given parts; associated parts that are
+         * not among them are dropped.
+         * @param index the position of the product in the snapshot
+         * @param partsById the parts the associated parts may refer to, by ID
+         * @return a new product, not yet in the inventory
+         */
+        Product readProduct(int index, IntHashMap<Part> partsById) {
+            int at = productsOffset + index * PRODUCT_SIZE;
+            Product product = new Product(buffer.getInt(at), string(buffer.getInt(at + 4)),
+                    buffer.getDouble(at + 8), buffer.getInt(at + 16), buffer.getInt(at + 20),
+                    buffer.getInt(at + 24));
+            int first = associationsOffset + buffer.getInt(at + 28) * Integer.BYTES;
+            int count = buffer.getInt(at + 32);
+            List<Part> associated = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Part part = partsById.get(buffer.getInt(first + i * Integer.BYTES));
+                if (part != null) {
+                    associated.add(part);
+                }
+            }
+            product.loadAssociatedParts(associated);
+            return product;
+        }
+
+        private String string(int offset) {
+            int at = stringsOffset + offset;
+            int length = buffer.getInt(at);
+            byte[] bytes = new byte[length];
+            buffer.get(at + Integer.BYTES, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Closes the file. The mapping itself is released when the buffer is garbage collected.
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Collects the strings of a snapshot, storing each distinct string once.
+     */
+    private static final class StringTable {
+
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        int add(String text) throws IOException {
+            String value = text == null ? "" : text;
+            Integer offset = offsets.get(value);
+            if (offset == null) {
+                offset = bytes.size();
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+                offsets.put(value, offset);
+            }
+            return offset;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * The whole inventory at one moment: every part and product, in the order of the inventory's lists, with the values
+ * they had then. A view never changes, so it can be read for as long as needed from any thread without locking,
+ * while the inventory goes on changing. Views share their storage with the inventory and with each other, which is
+ * what lets Inventory.snapshot hand one out without copying.
+ */
+public final class InventoryView {
+
+    static final InventoryView EMPTY = new InventoryView(new PersistentVector.Editor<PartState>().snapshot(),
+            new PersistentVector.Editor<ProductState>().snapshot());
+
+    private final List<PartState> parts;
+    private final List<ProductState> products;
+
+    InventoryView(List<PartState> parts, List<ProductState> products) {
+        this.parts = parts;
+        this.products = products;
+    }
+
+    /**
+     * Returns the parts.
+     * @return an unmodifiable list of the values of every part
+     */
+    public List<PartState> getParts() {
+        return parts;
+    }
+
+    /**
+     * Returns the products.
+     * @return an unmodifiable list of the values of every product
+     */
+    public List<ProductState> getProducts() {
+        return products;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.softwaretry2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The small amount of JSON the InventoryServer needs: writing values into a StringBuilder and parsing request
+ * bodies. Objects are parsed into maps, arrays into lists, numbers into doubles, and true, false and null into
+ * Boolean and null.
+ * */
+final class Json {
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON object.
+     * @param text the JSON text
+     * @return the members of the object, in the order they appear
+     * @throws IllegalArgumentException if the text is not a single JSON object
+     * */
+    static Map<String, Object> parseObject(String text) {
+        Json parser = new Json(text);
+        parser.skipSpace();
+        if (!parser.peek('{')) {
+            throw parser.error("Expected an object");
+        }
+        Map<String, Object> object = parser.readObject();
+        parser.skipSpace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return object;
+    }
+
+    /**
+     * Appends a string as a quoted JSON string.
+     * @param out the builder to append to
+     * @param value the string, or null
+     * */
+    static void writeString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Appends a number. JSON has no NaN or infinity, so those are written as null.
+     * @param out the builder to append to
+     * @param value the number
+     * */
+    static void writeNumber(StringBuilder out, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private Object readValue() {
+        skipSpace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of text");
+        }
+        char c = text.charAt(position);
+        if (c == '{') {
+            return readObject();
+        }
+        if (c == '[') {
+            return readArray();
+        }
+        if (c == '"') {
+            return readString();
+        }
+        if (text.startsWith("true", position)) {
+            position += 4;
+            return Boolean.TRUE;
+        }
+        if (text.startsWith("false", position)) {
+            position += 5;
+            return Boolean.FALSE;
+        }
+        if (text.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        return readNumber();
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipSpace();
+        if (peek('}')) {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipSpace();
+            if (!peek('"')) {
+                throw error("Expected a member name");
+            }
+            String name = readString();
+            skipSpace();
+            expect(':');
+            object.put(name, readValue());
+            skipSpace();
+            if (peek(',')) {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipSpace();
+        if (peek(']')) {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipSpace();
+            if (peek(',')) {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Bad unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+    }
+
+    private Double readNumber() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Unexpected character");
+        }
+        try {
+            return Double.valueOf(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Bad number");
+        }
+    }
+
+    private void skipSpace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean peek(char c) {
+        return position < text.length() && text.charAt(position) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
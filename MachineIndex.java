@@ -0,0 +1,112 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps a machine ID to the in-house parts in the inventory that the machine makes, and keeps the total stock and
+ * value of each machine's parts as they change, so the load on a machine is read without visiting its parts.
+ * Each part remembers the machine it is filed under and the stock and value it last added to that machine's totals;
+ * when the part changes, those are taken off again and its current ones added, so each change costs the same
+ * however many parts there are. Values are totalled in whole cents, so the totals never drift however many changes
+ * are applied.
+ * Not thread-safe; the Inventory only uses it while holding its lock.
+ */
+class MachineIndex {
+
+    private final IntHashMap<Machine> machines = new IntHashMap<>();
+
+    /**
+     * Files a part under its machine and adds its stock and value to the machine's totals.
+     * @param part the part
+     */
+    void add(InHouse part) {
+        int machineId = part.getMachineId();
+        Machine machine = machines.get(machineId);
+        if (machine == null) {
+            machine = new Machine();
+            machines.put(machineId, machine);
+        }
+        int stock = part.getStock();
+        long valueCents = Cents.of(part.getPrice()) * stock;
+        machine.parts.add(part);
+        machine.stock += stock;
+        machine.valueCents += valueCents;
+        part.setFiling(machineId, stock, valueCents);
+    }
+
+    /**
+     * Takes a part out from under the machine it was filed under, along with what it added to the totals.
+     * @param part the part
+     */
+    void remove(InHouse part) {
+        int machineId = part.getFiledMachineId();
+        Machine machine = machines.get(machineId);
+        if (machine != null && machine.parts.remove(part)) {
+            if (machine.parts.isEmpty()) {
+                machines.remove(machineId);
+            } else {
+                machine.stock -= part.getFiledStock();
+                machine.valueCents -= part.getFiledValueCents();
+            }
+        }
+    }
+
+    /**
+     * Brings the totals up to date after a part's machine, stock or price may have changed.
+     * @param part the part
+     */
+    void update(InHouse part) {
+        remove(part);
+        add(part);
+    }
+
+    /**
+     * Returns the parts a machine makes.
+     * @param machineId the machine ID
+     * @return a new list of the parts, in the order of the inventory's list of parts
+     */
+    List<InHouse> parts(int machineId) {
+        Machine machine = machines.get(machineId);
+        List<InHouse> found = new ArrayList<>(machine == null ? List.of() : machine.parts);
+        found.sort(Comparator.comparingInt(Part::getPosition));
+        return found;
+    }
+
+    /**
+     * Returns the load on a machine.
+     * @param machineId the machine ID
+     * @return the load, with no parts if the machine makes none
+     */
+    MachineLoad load(int machineId) {
+        Machine machine = machines.get(machineId);
+        return machine == null ? new MachineLoad(machineId, 0, 0, 0) : machine.load(machineId);
+    }
+
+    /**
+     * Returns the load on every machine that makes at least one part.
+     * @return a new list of the loads, in order of machine ID
+     */
+    List<MachineLoad> loads() {
+        List<MachineLoad> loads = new ArrayList<>(machines.size());
+        machines.forEachKey(machineId -> loads.add(machines.get(machineId).load(machineId)));
+        loads.sort(Comparator.comparingInt(MachineLoad::getMachineId));
+        return loads;
+    }
+
+    /**
+     * The parts of one machine and their running totals.
+     */
+    private static final class Machine {
+        final Set<InHouse> parts = new HashSet<>();
+        long stock;
+        long valueCents;
+
+        MachineLoad load(int machineId) {
+            return new MachineLoad(machineId, parts.size(), stock, Cents.toAmount(valueCents));
+        }
+    }
+}
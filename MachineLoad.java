@@ -0,0 +1,51 @@
+package Model;
+
+/**
+ * The load on one machine at one moment: how many in-house parts in the inventory it makes, and the stock and value
+ * of those parts. Unlike the parts themselves it never changes.
+ */
+public final class MachineLoad {
+
+    private final int machineId;
+    private final int partCount;
+    private final long totalStock;
+    private final double totalValue;
+
+    MachineLoad(int machineId, int partCount, long totalStock, double totalValue) {
+        this.machineId = machineId;
+        this.partCount = partCount;
+        this.totalStock = totalStock;
+        this.totalValue = totalValue;
+    }
+
+    /**
+     * @return the machine ID
+     */
+    public int getMachineId() {
+        return machineId;
+    }
+
+    /**
+     * Returns the number of parts the machine makes.
+     * @return the part count
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Returns the sum of the stock of the parts the machine makes.
+     * @return the total stock
+     */
+    public long getTotalStock() {
+        return totalStock;
+    }
+
+    /**
+     * Returns the sum of price times stock over the parts the machine makes, with each price rounded to the cent.
+     * @return the total value
+     */
+    public double getTotalValue() {
+        return totalValue;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.softwaretry2;
 
+import Model.InventoryMetrics;
+import Model.InventoryPersistence;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 
 /**
  * The Main class is the starting point of the application. It extends the JavaFX Application class and overrides its
@@ -14,13 +18,20 @@ import java.io.IOException;
  * */
 public class Main extends Application {
 
+    private static final int DEFAULT_HTTP_PORT = 8080;
+
+    private InventoryPersistence persistence;
+
     /**
-     * This method is called by the JavaFX platform to start the application.
+     * This method is called by the JavaFX platform to start the application. It loads the stored inventory before
+     * showing the main screen, and publishes the inventory metrics over JMX.
      * @param stage The primary stage for the application, onto which the application scene can be set.
-     * @throws IOException If the FXML file cannot be loaded.
+     * @throws IOException If the stored inventory or the FXML file cannot be loaded.
      * */
     @Override
     public void start(Stage stage) throws IOException {
+        persistence = InventoryPersistence.openDefault();
+        InventoryMetrics.registerMBean();
         FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("main-screen-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 830, 400);
         stage.setTitle("Hello!");
@@ -28,12 +39,58 @@ public class Main extends Application {
         stage.show();
     }
 
+    /**
+     * This method is called by the JavaFX platform when the application exits. It forces the inventory log to disk.
+     * @throws IOException If the inventory log cannot be closed.
+     * */
+    @Override
+    public void stop() throws IOException {
+        if (persistence != null) {
+            persistence.close();
+        }
+    }
+
     /**
      *The main() method is the entry point of the application. It launches the JavaFX runtime by calling the launch()
-     * method inherited from the Application class.
-     * @param args The command line arguments.
+     * method inherited from the Application class, or with --headless serves the inventory over HTTP instead.
+     * @param args The command line arguments: --headless, and optionally --port=N for the HTTP port.
+     * @throws IOException If the stored inventory cannot be loaded or the HTTP port cannot be bound.
+     * */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_HTTP_PORT;
+        boolean headless = false;
+        for (String arg : args) {
+            if (arg.equals("--headless")) {
+                headless = true;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+        }
+        if (headless) {
+            runHeadless(port);
+        } else {
+            launch();
+        }
+    }
+
+    /**
+     * Loads the stored inventory, publishes its metrics over JMX and serves it over HTTP on the loopback address until
+     * the process is stopped, without starting JavaFX. The server and the inventory log are closed by a shutdown hook.
+     * @param port The port to listen on.
+     * @throws IOException If the stored inventory cannot be loaded or the port cannot be bound.
      * */
-    public static void main(String[] args) {
-        launch();
+    private static void runHeadless(int port) throws IOException {
+        InventoryPersistence persistence = InventoryPersistence.openDefault();
+        InventoryMetrics.registerMBean();
+        InventoryServer server = InventoryServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                persistence.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the inventory log: " + e.getMessage());
+            }
+        }));
+        System.out.println("Serving the inventory on http://localhost:" + server.getPort());
     }
 }
\ No newline at end of file
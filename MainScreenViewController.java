@@ -1,9 +1,8 @@
 package com.example.softwaretry2;
 
 import Model.*;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -18,47 +17,12 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Optional;
 import java.util.ResourceBundle;
-import java.util.function.Predicate;
-
-import static Model.Inventory.getAllParts;
-import static Model.Inventory.getAllProducts;
 
 /**
  * Responsible for the main screen
  */
 public class MainScreenViewController implements Initializable {
 
-    public void refresh() {
-        // Clear the existing parts list
-        allParts.clear();
-
-        // Add all parts to the list
-        allParts.addAll(getAllParts());
-
-        // Refresh the parts table
-        partsTable.refresh();
-
-        // Clear the existing products list
-        allProducts.clear();
-
-        // Add all products to the list
-        allProducts.addAll(getAllProducts());
-
-        // Refresh the products table
-        productsTable.refresh();
-    }
-
-
-/*    public void refresh() {
-        // Refresh the parts table
-        partsTable.setItems(getAllParts());
-
-        // Refresh the products table
-        productsTable.setItems(getAllProducts());
-
-    }*/
-
-
     static MainScreenViewController instance;
     @FXML private TableView<Part> partsTable;
     @FXML private TableColumn<Part, Integer> partIdColumn;
@@ -82,88 +46,56 @@ public class MainScreenViewController implements Initializable {
     @FXML private TextField searchProductsTextField;
     private static Part partToMod;
     private static Product productToMod;
+    private TableSearch<Part> partSearch;
+    private TableSearch<Product> productSearch;
     @FXML private Button exitButton;
 
     /**
-     * Create an observable list to store all the parts.
-     */
-    @FXML private ObservableList<Part> allParts = FXCollections.observableArrayList(/*
-            new InHouse(1, "Part A", 10.0, 5, 1, 10, 100),
-            new InHouse(2, "Part B", 20.0, 10, 1, 10, 100),
-            new Outsourced(3, "Part C", 30.0, 15, 1, 10, "Vendor A"),
-            new Outsourced(4, "Part D", 40.0, 20, 1, 10, "Vendor B")*/
-    );
-
-    /**
-     * Create a filtered list to hold the parts that match the search term.
-     */
-    private FilteredList<Part> filteredParts = new FilteredList<>(allParts);
-
-    /**
-     * Called when the search text field for parts is changed.
-     * Filters the list of parts based on the search term and displays the filtered list in the parts table.
+     * Called when Enter is pressed in the search text field for parts. Searches straight away instead of waiting for
+     * typing to pause.
      */
     @FXML
     private void onSearchPartsTextFieldChanged() {
-        String searchTerm = searchPartsTextField.getText().trim().toLowerCase();
-
-        // If the search term is empty, show all parts
-        if (searchTerm.isEmpty()) {
-            partsTable.setItems(allParts);
-        } else {
-            // Filter the list based on the search term
-            Predicate<Part> searchPredicate = part -> {
-                String name = part.getName().toLowerCase();
-                String id = Integer.toString(part.getId());
-                return name.contains(searchTerm) || id.contains(searchTerm);
-            };
-            filteredParts.setPredicate(searchPredicate);
-            partsTable.setItems(filteredParts);
-        }
+        searchParts(true);
     }
 
     /**
-     * Create an observable list to store all the products.
+     * Looks the search term up in the inventory's search index in the background and shows only the matching parts
+     * in the parts table. The search is run again when the inventory changes, so the table keeps following it, and
+     * the selected part stays selected while it is shown.
+     * @param now true to search straight away, false to wait for typing to pause
      */
-    private ObservableList<Product> allProducts = FXCollections.observableArrayList(/*
-            new Product(1, "Product A", 100.0, 5, 1, 10),
-            new Product(2, "Product B", 200.0, 10, 1, 10),
-            new Product(3, "Product C", 300.0, 15, 1, 10),
-            new Product(4, "Product D", 400.0, 20, 1, 10)*/
-    );
-
-    // Create a filtered list to hold the products that match the search term
-    private FilteredList<Product> filteredProducts = new FilteredList<>(allProducts);
+    private void searchParts(boolean now) {
+        // An empty search term shows all parts
+        partSearch.search(searchPartsTextField.getText().trim().toLowerCase(), now);
+    }
 
     /**
-     * Called when the search text field for products is changed.
-     * Filters the list of products based on the search term and displays the filtered list in the products table.
+     * Called when Enter is pressed in the search text field for products. Searches straight away instead of waiting
+     * for typing to pause.
      */
     @FXML
     private void onSearchProductsTextFieldChanged() {
-        String searchTerm = searchProductsTextField.getText().trim().toLowerCase();
+        searchProducts(true);
+    }
 
-        // If the search term is empty, show all products
-        if (searchTerm.isEmpty()) {
-            productsTable.setItems(allProducts);
-        } else {
-            // Filter the list based on the search term
-            Predicate<Product> searchPredicate = product -> {
-                String name = product.getName().toLowerCase();
-                String id = Integer.toString(product.getId());
-                return name.contains(searchTerm) || id.contains(searchTerm);
-            };
-            filteredProducts.setPredicate(searchPredicate);
-            productsTable.setItems(filteredProducts);
-        }
+    /**
+     * Looks the search term up in the inventory's search index in the background and shows only the matching
+     * products in the products table, in the same way as the parts search.
+     * @param now true to search straight away, false to wait for typing to pause
+     */
+    private void searchProducts(boolean now) {
+        // An empty search term shows all products
+        productSearch.search(searchProductsTextField.getText().trim().toLowerCase(), now);
     }
 
 
     /**
      * Initializes the main screen view controller by setting up the columns
-     * in the parts and products tables, initializing the allParts and allProducts
-     * lists, and setting data for the tables. This method is called automatically
-     * when the FXML file is loaded.
+     * in the parts and products tables and binding the tables to the inventory's
+     * lists. The inventory publishes every insertion, removal and row update to
+     * those lists, so the tables redraw only the rows that changed and never need
+     * refreshing. This method is called automatically when the FXML file is loaded.
      *
      * @param url The location of the FXML file
      * @param rb  The resource bundle associated with the FXML file
@@ -177,31 +109,44 @@ public class MainScreenViewController implements Initializable {
         partInventoryColumn.setCellValueFactory(new PropertyValueFactory<Part, Integer>("stock"));
         partPriceColumn.setCellValueFactory(new PropertyValueFactory<Part, Double>("price"));
 
-        // Initialize the allParts list
-        allParts.setAll(Inventory.getAllParts());
-
         // Set data for TableView
-        partsTable.setItems(Inventory.getAllParts());
+        partSearch = new TableSearch<>(partsTable, Inventory.getAllParts(), Inventory::searchParts, null);
         // Set up the columns in the products table
         productIdColumn.setCellValueFactory(new PropertyValueFactory<Product, Integer>("id"));
         productNameColumn.setCellValueFactory(new PropertyValueFactory<Product, String>("name"));
         productInventoryColumn.setCellValueFactory(new PropertyValueFactory<Product, Integer>("stock"));
         productPriceColumn.setCellValueFactory(new PropertyValueFactory<Product, Double>("price"));
 
-        // Initialize the allProducts list
-        allProducts.setAll(Inventory.getAllProducts());
-
         // Set data for TableView
-        productsTable.setItems(Inventory.getAllProducts());
+        productSearch = new TableSearch<>(productsTable, Inventory.getAllProducts(), Inventory::searchProducts,
+                null);
+
+        // Search as the user types; only the parts and products found by the latest search are shown
+        searchPartsTextField.textProperty().addListener((observable, oldText, newText) -> searchParts(false));
+        searchProductsTextField.textProperty().addListener((observable, oldText, newText) -> searchProducts(false));
 
 
     }
 
+    /**
+     * Wraps one of the inventory lists in a SortedList that follows the table's sort order. The inventory lists
+     * cannot be reordered, so clicking a column header sorts this view instead.
+     *
+     * @param table the table that will display the list
+     * @param items the inventory list
+     * @return a sorted view of the list bound to the table's comparator
+     */
+    static <T> SortedList<T> sortedView(TableView<T> table, ObservableList<T> items) {
+        SortedList<T> sorted = new SortedList<>(items);
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        return sorted;
+    }
+
     /**
      * Called when the "Add Part" button is clicked. Loads the "Add Part" view,
      * creates a new stage to display the view, and sets the main screen view
-     * controller as the controller for the "Add Part" view. Also refreshes the
-     * parts table to show any changes made to the parts list.
+     * controller as the controller for the "Add Part" view. The new part reaches
+     * the parts table through the inventory's list.
      *
      * @param event The action event associated with the button click
      * @throws IOException If an I/O error occurs while loading the FXML file
@@ -214,15 +159,14 @@ public class MainScreenViewController implements Initializable {
         addPartStage.setScene(new Scene(root));
         addPartStage.show();
 
-        partsTable.refresh();
-
         AddPartController addPartController = loader.getController();
         addPartController.setMainScreenViewController(this);
     }
 
     /**
-     * Handles the event when the Delete Part button is clicked. Deletes the selected part from the parts table
-     * and updates the allParts list and partsTable accordingly.
+     * Handles the event when the Delete Part button is clicked. Deletes the selected part from the inventory, which
+     * removes its row from the parts table.
+     * Displays an error message if any product still uses the selected part.
      */
     @FXML
     private void OnDeletePartButtonClicked() {
@@ -233,6 +177,11 @@ public class MainScreenViewController implements Initializable {
             alert.showAndWait();
             return;
         }
+        // Check if any product still uses the part
+        if (Inventory.isPartUsed(selectedPart.getId())) {
+            displayAlert(6);
+            return;
+        }
 
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to delete the selected part?");
         Optional<ButtonType> result = alert.showAndWait();
@@ -241,15 +190,14 @@ public class MainScreenViewController implements Initializable {
             //experiment
 
             Inventory.deletePart(selectedPart);
-            partsTable.setItems(Inventory.getAllParts());
 
 
         }
     }
 
     /**
-     * Handles the event when the Add Product button is clicked. Opens the Add Product view in a new stage
-     * and refreshes the products table after the addition of the new product.
+     * Handles the event when the Add Product button is clicked. Opens the Add Product view in a new stage; the new
+     * product reaches the products table through the inventory's list.
      */
     @FXML private void OnAddProductButtonClicked(){
         try {
@@ -259,8 +207,6 @@ public class MainScreenViewController implements Initializable {
             Stage stage = new Stage();
             stage.setScene(new Scene(root));
             stage.showAndWait();
-
-            productsTable.refresh();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -268,7 +214,7 @@ public class MainScreenViewController implements Initializable {
 
     /**
      * Handles the event when the "Delete Product" button is clicked.
-     * Deletes the selected product from the products table and updates the allProducts list.
+     * Deletes the selected product from the inventory, which removes its row from the products table.
      * Displays an error message if the selected product has associated parts.
      */
     @FXML
@@ -292,7 +238,6 @@ public class MainScreenViewController implements Initializable {
             // Remove the selected product from the products table
 
             Inventory.deleteProduct(selectedProduct);
-            productsTable.setItems(Inventory.getAllProducts());
 
         }
     }
@@ -329,8 +274,6 @@ public class MainScreenViewController implements Initializable {
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
             stage.setScene(scene);
             stage.show();
-
-            partsTable.refresh();
         }
     }
 
@@ -351,8 +294,6 @@ public class MainScreenViewController implements Initializable {
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
             stage.setScene(scene);
             stage.show();
-
-            productsTable.refresh();
         }
     }
 
@@ -376,6 +317,8 @@ public class MainScreenViewController implements Initializable {
      *                  4: Product not selected
      *                  5: Parts Associated
      *                  All parts must be removed from product before deletion.
+     *                  6: Part in use
+     *                  The part must be removed from every product before deletion.
      */
     private void displayAlert(int alertType) {
 
@@ -409,6 +352,12 @@ public class MainScreenViewController implements Initializable {
                 alertError.setContentText("All parts must be removed from product before deletion.");
                 alertError.showAndWait();
                 break;
+            case 6:
+                alertError.setTitle("Error");
+                alertError.setHeaderText("Part In Use");
+                alertError.setContentText("The part must be removed from every product that uses it before deletion.");
+                alertError.showAndWait();
+                break;
         }
     }
 
@@ -157,7 +157,7 @@ public class ModPartController implements Initializable {
                     try {
                         machineId = Integer.parseInt(partIdNameText.getText());
                         InHouse newInHousePart = new InHouse(id, name, price, stock, min, max, machineId);
-                        Inventory.addPart(newInHousePart);
+                        Inventory.replacePart(id, newInHousePart);
                         partAddSuccessful = true;
                     } catch (Exception e) {
                         displayAlert(2);
@@ -168,12 +168,11 @@ public class ModPartController implements Initializable {
                     companyName = partIdNameText.getText();
                     Outsourced newOutsourcedPart = new Outsourced(id, name, price, stock, min, max,
                             companyName);
-                    Inventory.addPart(newOutsourcedPart);
+                    Inventory.replacePart(id, newOutsourcedPart);
                     partAddSuccessful = true;
                 }
 
                 if (partAddSuccessful) {
-                    Inventory.deletePart(selectedPart);
                     returnToMainScreen(event);
                 }
             }
@@ -209,7 +208,7 @@ public class ModPartController implements Initializable {
 
         boolean isValid = true;
 
-        if (min <= 0 || min >= max) {
+        if (!Inventory.isMinValid(min, max)) {
             isValid = false;
             displayAlert(3);
         }
@@ -228,7 +227,7 @@ public class ModPartController implements Initializable {
 
         boolean isValid = true;
 
-        if (stock < min || stock > max) {
+        if (!Inventory.isInventoryValid(min, max, stock)) {
             isValid = false;
             displayAlert(4);
         }
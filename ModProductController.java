@@ -30,6 +30,7 @@ import java.util.ResourceBundle;
 public class ModProductController implements Initializable {
 
     private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private TableSearch<Part> partSearch;
     @FXML private TableView<Part> associatedPartTableView;
     @FXML private TableView<Part> partTableView;
     private Product selectedProduct;
@@ -107,12 +108,11 @@ public class ModProductController implements Initializable {
                     }
 
                     if (minValid(min, max) && inventoryValid(min, max, stock)) {
-                        Inventory.addProduct(newProduct);
+                        Inventory.replaceProduct(selectedProduct.getId(), newProduct);
                         productAddSuccessful = true;
                     }
 
                     if (productAddSuccessful) {
-                        Inventory.deleteProduct(selectedProduct);
                         returnToMainScreen(event);
                     }
 
@@ -182,13 +182,15 @@ public class ModProductController implements Initializable {
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         selectedProduct = MainScreenViewController.getProductToMod();
-        associatedParts = selectedProduct.getAllAssociatedParts();
+        associatedParts = FXCollections.observableArrayList(selectedProduct.getAllAssociatedParts());
 
         partIdColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         partNameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
         partInventoryColumn.setCellValueFactory(new PropertyValueFactory<>("stock"));
         partPriceColumn.setCellValueFactory(new PropertyValueFactory<>("price"));
-        partTableView.setItems(Inventory.getAllParts());
+        partSearch = new TableSearch<>(partTableView, Inventory.getAllParts(), TableSearch::partsContaining,
+                () -> displayAlert(2));
+        partSearchText.textProperty().addListener((observable, oldText, newText) -> searchParts(false));
 
         associatedPartIdColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         associatedPartNameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
@@ -241,29 +243,22 @@ public class ModProductController implements Initializable {
     }
 
     /**
-     *  Handles the search parts text field change event by searching all the parts
-     *  containing the specified search string in their ID or name,
-     *  and displays the search result in the part table view.
+     *  Handles Enter in the search parts text field by searching straight away instead of waiting for typing
+     *  to pause, and displays an alert if no parts contain the search string in their ID or name.
      * @param event The action event triggered by the search parts text field
      */
     @FXML void onSearchPartsTextFieldChanged(ActionEvent event) {
 
-        ObservableList<Part> allParts = Inventory.getAllParts();
-        ObservableList<Part> partsFound = FXCollections.observableArrayList();
-        String searchString = partSearchText.getText();
-
-        for (Part part : allParts) {
-            if (String.valueOf(part.getId()).contains(searchString) ||
-                    part.getName().contains(searchString)) {
-                partsFound.add(part);
-            }
-        }
-
-        partTableView.setItems(partsFound);
+        searchParts(true);
+    }
 
-        if (partsFound.size() == 0) {
-            displayAlert(2);
-        }
+    /**
+     * Looks the search string up in the inventory's search index in the background and shows only the parts whose ID
+     * or name contains it exactly as typed in the part table view. An empty search string shows all parts.
+     * @param now true to search straight away, false to wait for typing to pause
+     */
+    private void searchParts(boolean now) {
+        partSearch.search(partSearchText.getText(), now);
     }
 
     /**
@@ -276,7 +271,7 @@ public class ModProductController implements Initializable {
 
         boolean isValid = true;
 
-        if (min <= 0 || min >= max) {
+        if (!Inventory.isMinValid(min, max)) {
             isValid = false;
             displayAlert(3);
         }
@@ -295,7 +290,7 @@ public class ModProductController implements Initializable {
 
         boolean isValid = true;
 
-        if (stock < min || stock > max) {
+        if (!Inventory.isInventoryValid(min, max, stock)) {
             isValid = false;
             displayAlert(4);
         }
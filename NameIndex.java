@@ -0,0 +1,148 @@
+package Model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A multimap from names to the items that carry them, with an exact and a case-insensitive variant.
+ * Each name maps to a growable bucket, so adding an item takes amortized constant time however many items share the
+ * name. Lookups hand back a read-only view of the bucket as it is at that moment, without copying: items are only
+ * ever appended past the end of a view, and a removal moves the bucket to a new array, so a view never changes.
+ * @param <T> the type of item being indexed
+ */
+public class NameIndex<T> {
+
+    private final Map<String, Bucket<T>> exact = new HashMap<>();
+    private final Map<String, Bucket<T>> folded = new HashMap<>();
+
+    /**
+     * Adds an item under the given name.
+     * @param name the name of the item
+     * @param item the item to add
+     */
+    public void add(String name, T item) {
+        name = normalize(name);
+        exact.computeIfAbsent(name, key -> new Bucket<>()).add(item);
+        folded.computeIfAbsent(fold(name), key -> new Bucket<>()).add(item);
+    }
+
+    /**
+     * Removes an item previously added under the given name.
+     * @param name the name the item was added under
+     * @param item the item to remove
+     */
+    public void remove(String name, T item) {
+        name = normalize(name);
+        removeFrom(exact, name, item);
+        removeFrom(folded, fold(name), item);
+    }
+
+    /**
+     * Returns the items whose name is exactly the given name.
+     * @param name the name to look up
+     * @return a read-only list of matching items, empty if there are none
+     */
+    public List<T> lookup(String name) {
+        return view(exact.get(normalize(name)));
+    }
+
+    /**
+     * Returns the items whose name equals the given name, ignoring case.
+     * @param name the name to look up
+     * @return a read-only list of matching items, empty if there are none
+     */
+    public List<T> lookupIgnoreCase(String name) {
+        return view(folded.get(fold(normalize(name))));
+    }
+
+    /**
+     * Removes every entry from the index.
+     */
+    public void clear() {
+        exact.clear();
+        folded.clear();
+    }
+
+    private static <T> void removeFrom(Map<String, Bucket<T>> map, String key, T item) {
+        Bucket<T> bucket = map.get(key);
+        if (bucket != null && bucket.remove(item) && bucket.size == 0) {
+            map.remove(key);
+        }
+    }
+
+    private static <T> List<T> view(Bucket<T> bucket) {
+        return bucket == null ? Collections.emptyList() : new View<>(bucket.items, bucket.size);
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name;
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The items sharing one key, in an array that doubles as it fills.
+     */
+    private static final class Bucket<T> {
+        private Object[] items = new Object[2];
+        private int size;
+
+        void add(T item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        /**
+         * Removes an item into a new array, leaving the old one as the views handed out before see it.
+         */
+        boolean remove(T item) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == item) {
+                    Object[] rest = new Object[Math.max(2, items.length)];
+                    System.arraycopy(items, 0, rest, 0, i);
+                    System.arraycopy(items, i + 1, rest, i, size - i - 1);
+                    items = rest;
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A read-only list of the first items of a bucket's array, which never changes.
+     */
+    private static final class View<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] items;
+        private final int size;
+
+        View(Object[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            return (T) items[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package Model;
+
+/**
+ * The figures InventoryMetrics has recorded for one operation. Times are in nanoseconds, and percentiles are the
+ * upper edge of the histogram bucket they fall in.
+ */
+public class OperationStats {
+
+    private final String operation;
+    private final long count;
+    private final long timedCount;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+
+    OperationStats(String operation, long count, long timedCount, long totalNanos, long maxNanos, long p50Nanos, long p90Nanos,
+                   long p99Nanos, long p999Nanos) {
+        this.operation = operation;
+        this.count = count;
+        this.timedCount = timedCount;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+    }
+
+    /**
+     * Returns the name of the operation, the name of the Inventory method or Product.method.
+     * @return the operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the number of calls recorded.
+     * @return the call count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of calls that were timed, which the percentiles are taken from. It is lower than the call
+     * count for operations that time only a sample of their calls.
+     * @return the number of timed calls
+     */
+    public long getTimedCount() {
+        return timedCount;
+    }
+
+    /**
+     * Returns the time spent in all recorded calls together, estimated from the timed calls when only a sample was
+     * timed.
+     * @return the total time
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the average time of a call.
+     * @return the mean time, or 0 if there were no calls
+     */
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Returns the time of the slowest timed call.
+     * @return the longest time
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Returns the time half of the calls finished within.
+     * @return the median time
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /**
+     * Returns the time 90% of the calls finished within.
+     * @return the 90th percentile
+     */
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    /**
+     * Returns the time 99% of the calls finished within.
+     * @return the 99th percentile
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * Returns the time 99.9% of the calls finished within.
+     * @return the 99.9th percentile
+     */
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    @Override
+    public String toString() {
+        return operation + ": " + count + " calls, mean " + getMeanNanos() + " ns, p50 " + p50Nanos + " ns, p99 "
+                + p99Nanos + " ns, max " + maxNanos + " ns";
+    }
+}
@@ -7,9 +7,14 @@ package Model;
 public class Outsourced  extends Part {
 
     /**
-     * The name of the company that supplies the part.
+     * The vendor ID of the company that supplies the part, which Vendors maps to the company name.
      * */
-    private String companyName;
+    private int vendorId;
+
+    /**
+     * The vendor ID the part is filed under in the inventory's vendor index.
+     * */
+    private int indexedVendorId = Vendors.NONE;
 
     /**
      * Constructs an Outsourced part with the given parameters.
@@ -23,7 +28,7 @@ public class Outsourced  extends Part {
      * */
     public Outsourced(int id, String name, double price, int stock, int min, int max, String companyName) {
         super(id, name, price, stock, min, max);
-        this.companyName = companyName;
+        this.vendorId = Vendors.intern(companyName);
     }
 
     /**
@@ -31,7 +36,7 @@ public class Outsourced  extends Part {
      * @return the name of the company that supplies the part
      * */
     public String getCompanyName () {
-        return companyName;
+        return Vendors.name(vendorId);
     }
 
     /**
@@ -39,7 +44,35 @@ public class Outsourced  extends Part {
      * @param companyName the name of the company that supplies the part
      * */
     public void setCompanyName ( String companyName){
-        this.companyName = companyName;
+        int vendorId = Vendors.intern(companyName);
+        change(() -> this.vendorId = vendorId, () -> {
+            this.vendorId = vendorId;
+            changed(getId(), getName());
+        });
+    }
+
+    /**
+     * Returns the vendor ID of the company that supplies the part.
+     * @return the vendor ID, or Vendors.NONE if the part has no company name
+     * */
+    int getVendorId() {
+        return vendorId;
+    }
+
+    /**
+     * Returns the vendor ID the part is filed under in the inventory's vendor index.
+     * @return the vendor ID, or Vendors.NONE while the part is not filed
+     * */
+    int getIndexedVendorId() {
+        return indexedVendorId;
+    }
+
+    /**
+     * Records the vendor ID the part is filed under. Called by the VendorIndex.
+     * @param indexedVendorId the vendor ID
+     * */
+    void setIndexedVendorId(int indexedVendorId) {
+        this.indexedVendorId = indexedVendorId;
     }
 
 
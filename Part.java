@@ -9,17 +9,27 @@ package Model; /**
 public abstract class Part {
     private int id;
     private String name;
-    private double price;
-    private int stock;
-    private int min;
-    private int max;
+    /**
+     * The part's slot in the inventory's column store. Only meaningful while detached is null. The inventory may
+     * release the slot and give it to another part, so the columns are only read and written under its lock, read
+     * optimistically and checked against it afterwards, or, for stock adjustments, read and written with the slot
+     * pinned.
+     */
+    private int slot = -1;
+    /**
+     * The part's own copy of its values while it is not in the inventory, null while it is. It only changes between
+     * the two while the part's monitor is held, so a setter holding the monitor can change a part that is not in the
+     * inventory without taking the inventory's lock.
+     */
+    private volatile Values detached;
+    /**
+     * The part's position in the inventory's list of parts. Only meaningful while the part is in the inventory.
+     */
+    private int position = -1;
     public Part(int id, String name, double price, int stock, int min, int max) {
         this.id = id;
         this.name = name;
-        this.price = price;
-        this.stock = stock;
-        this.min = min;
-        this.max = max;
+        this.detached = new Values(price, stock, min, max);
     }
 
     /**
@@ -33,7 +43,11 @@ public abstract class Part {
      * @param id the id to set
      */
     public void setId(int id) {
-        this.id = id;
+        change(() -> this.id = id, () -> {
+            int oldId = this.id;
+            this.id = id;
+            changed(oldId, name);
+        });
     }
 
     /**
@@ -47,61 +61,232 @@ public abstract class Part {
      * @param name the name to set
      */
     public void setName(String name) {
-        this.name = name;
+        change(() -> this.name = name, () -> {
+            String oldName = this.name;
+            this.name = name;
+            changed(id, oldName);
+        });
     }
 
     /**
      * @return the price
      */
     public double getPrice() {
-        return price;
+        return Inventory.readDouble(() -> {
+            Values values = detached;
+            return values != null ? values.price : Inventory.partColumns.getPrice(slot);
+        });
     }
 
     /**
      * @param price the price to set
      */
     public void setPrice(double price) {
-        this.price = price;
+        change(() -> detached.price = price, () -> {
+            Inventory.partColumns.setPrice(slot, price);
+            changed(id, name, true);
+        });
     }
 
     /**
      * @return the stock
      */
     public int getStock() {
-        return stock;
+        return Inventory.readInt(() -> {
+            Values values = detached;
+            return values != null ? values.stock : Inventory.partColumns.getStock(slot);
+        });
     }
 
     /**
      * @param stock the stock to set
      */
-    public void setStock(int stock) { this.stock = stock; }
+    public void setStock(int stock) {
+        change(() -> detached.stock = stock, () -> {
+            Inventory.partColumns.setStock(slot, stock);
+            changed(id, name);
+        });
+    }
 
     /**
      * @return the min
      */
     public int getMin() {
-        return min;
+        return Inventory.readInt(() -> {
+            Values values = detached;
+            return values != null ? values.min : Inventory.partColumns.getMin(slot);
+        });
     }
 
     /**
      * @param min the min to set
      */
     public void setMin(int min) {
-        this.min = min;
+        change(() -> detached.min = min, () -> {
+            Inventory.partColumns.setMin(slot, min);
+            changed(id, name);
+        });
     }
 
     /**
      * @return the max
      */
     public int getMax() {
-        return max;
+        return Inventory.readInt(() -> {
+            Values values = detached;
+            return values != null ? values.max : Inventory.partColumns.getMax(slot);
+        });
     }
 
     /**
      * @param max the max to set
      */
     public void setMax(int max) {
-        this.max = max;
+        change(() -> detached.max = max, () -> {
+            Inventory.partColumns.setMax(slot, max);
+            changed(id, name);
+        });
+    }
+
+    /**
+     * Atomically adds to the stock of a part in the inventory, retrying with compare-and-set until no other thread
+     * has changed the stock in between. Takes no lock: the part's slot is pinned while the stock is changed, which
+     * keeps the part in it, and the slot is read again if the part has moved. Does not tell the inventory about the
+     * change.
+     * @param delta the amount to add, negative to take stock away
+     * @param checkMin true to refuse a change that would take the stock below the min
+     * @param checkMax true to refuse a change that would take the stock above the max
+     * @return true if the stock was changed, false if it would have broken a limit or the part is not in the inventory
+     */
+    boolean adjustStockAtomically(int delta, boolean checkMin, boolean checkMax) {
+        PartColumns columns = Inventory.partColumns;
+        while (detached == null) {
+            int pinned = slot;
+            if (pinned >= 0 && columns.pin(pinned, this)) {
+                try {
+                    return columns.adjustStock(pinned, delta, checkMin, checkMax);
+                } finally {
+                    columns.unpin(pinned);
+                }
+            }
+            Thread.onSpinWait();
+        }
+        return false;
+    }
+
+    /**
+     * Returns true while the part is in the inventory.
+     * @return true if the part's values live in the inventory's column store
+     */
+    boolean inInventory() {
+        return detached == null;
+    }
+
+    /**
+     * Returns the part's position in the inventory's list of parts. Only meaningful while the part is in the
+     * inventory.
+     * @return the position
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * Records the part's position in the inventory's list of parts. Called by the Inventory as the list changes.
+     * @param position the position
+     */
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Makes a change to the part. A part that is not in the inventory belongs to whoever holds it, so it is changed
+     * under its own monitor only; a part in the inventory is changed under the inventory's write lock, which keeps
+     * its slot in the column store from passing to another part while the change is made.
+     * @param detachedChange makes the change while the part is not in the inventory
+     * @param attachedChange makes the change while the part is in the inventory, and tells the inventory about it
+     */
+    void change(Runnable detachedChange, Runnable attachedChange) {
+        if (changeDetached(detachedChange)) {
+            return;
+        }
+        Inventory.changePart(() -> {
+            if (!changeDetached(detachedChange)) {
+                attachedChange.run();
+            }
+        });
+    }
+
+    private synchronized boolean changeDetached(Runnable change) {
+        if (detached == null) {
+            return false;
+        }
+        change.run();
+        return true;
+    }
+
+    /**
+     * Tells the inventory that a field of this part has changed, if the part is in the inventory.
+     * @param oldId the ID before the change
+     * @param oldName the name before the change
+     */
+    void changed(int oldId, String oldName) {
+        changed(oldId, oldName, false);
+    }
+
+    /**
+     * Tells the inventory that a field of this part has changed, if the part is in the inventory.
+     * @param oldId the ID before the change
+     * @param oldName the name before the change
+     * @param priceChanged true if the price was changed, so the costs of the products using the part are stale
+     */
+    void changed(int oldId, String oldName, boolean priceChanged) {
+        if (detached == null) {
+            Inventory.partChanged(this, oldId, oldName, priceChanged);
+        }
+    }
+
+    /**
+     * Moves the part's values into the column store, after which the part reads and writes them through its slot.
+     * @param columns the column store of the inventory
+     */
+    synchronized void attach(PartColumns columns) {
+        Values values = detached;
+        if (values != null) {
+            slot = columns.allocate(this, values.price, values.stock, values.min, values.max);
+            detached = null;
+        }
+    }
+
+    /**
+     * Copies the part's values out of the column store and releases its slot, so the part stays usable after it
+     * leaves the inventory.
+     * @param columns the column store of the inventory
+     */
+    synchronized void detach(PartColumns columns) {
+        if (detached == null) {
+            columns.close(slot);
+            detached = new Values(columns.getPrice(slot), columns.getStock(slot), columns.getMin(slot),
+                    columns.getMax(slot));
+            columns.release(slot);
+        }
+    }
+
+    /**
+     * The values of a part that is not in the inventory.
+     */
+    private static final class Values {
+        double price;
+        int stock;
+        int min;
+        int max;
+
+        Values(double price, int stock, int min, int max) {
+            this.price = price;
+            this.stock = stock;
+            this.min = min;
+            this.max = max;
+        }
     }
 
 }
@@ -0,0 +1,264 @@
+package Model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented storage for the price, stock, min and max of every part in the inventory.
+ * Each part in the inventory owns a slot, and each value is kept in a primitive array indexed by that slot, so
+ * reports over a single value read memory sequentially instead of visiting every part object. The arrays are split
+ * into fixed-size pages that are never moved once created, which lets the store grow without copying and keeps a
+ * slot's storage stable for as long as the slot exists. Released slots are zeroed and reused.
+ * Because pages never move, the stock of a slot can also be updated with compare-and-set, which lets many threads
+ * adjust the stock of the same part without a lock. A thread adjusting stock pins the slot first and checks that it
+ * still belongs to its part; a slot is closed to new pins, and waits for the pins already taken, before its values
+ * are copied out and it is released, so an adjustment is never lost or applied to the part that reuses the slot.
+ */
+class PartColumns {
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle OWNERS = MethodHandles.arrayElementVarHandle(Part[].class);
+
+    /** The pin count of a slot that is closed to new pins. */
+    private static final int CLOSED = -1;
+
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile Page[] pages = new Page[0];
+    private int highWater;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    /**
+     * Allocates a slot for a part and stores its values in it.
+     * @param owner the part that will own the slot
+     * @param price the price of the part
+     * @param stock the stock of the part
+     * @param min the min of the part
+     * @param max the max of the part
+     * @return the slot
+     */
+    int allocate(Part owner, double price, int stock, int min, int max) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = highWater++;
+            if ((slot >>> PAGE_BITS) == pages.length) {
+                Page[] grown = Arrays.copyOf(pages, pages.length + 1);
+                grown[pages.length] = new Page();
+                pages = grown;
+            }
+        }
+        Page page = pages[slot >>> PAGE_BITS];
+        int i = slot & PAGE_MASK;
+        page.price[i] = price;
+        page.stock[i] = stock;
+        page.min[i] = min;
+        page.max[i] = max;
+        OWNERS.setRelease(page.owner, i, owner);
+        return slot;
+    }
+
+    /**
+     * Waits for the stock adjustments that have pinned a slot to finish and refuses any new ones, so that the
+     * slot's values can be copied out for the last time. Must be followed by release.
+     * @param slot the slot to close
+     */
+    void close(int slot) {
+        int[] pins = pages[slot >>> PAGE_BITS].pins;
+        int i = slot & PAGE_MASK;
+        while (!INTS.compareAndSet(pins, i, 0, CLOSED)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Zeroes a closed slot and makes it available for reuse. Zeroed slots add nothing to any of the reports, so
+     * scans do not need to skip them.
+     * @param slot the slot to release
+     */
+    void release(int slot) {
+        Page page = pages[slot >>> PAGE_BITS];
+        int i = slot & PAGE_MASK;
+        page.owner[i] = null;
+        page.price[i] = 0;
+        page.stock[i] = 0;
+        page.min[i] = 0;
+        page.max[i] = 0;
+        INTS.setVolatile(page.pins, i, 0);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Pins a slot so that it is not released until unpin is called, if the slot still belongs to a part.
+     * @param slot the slot the part was last known to own
+     * @param owner the part
+     * @return true if the slot was pinned and belongs to the part; false if it is being released or belongs to
+     *         another part, in which case it is not pinned
+     */
+    boolean pin(int slot, Part owner) {
+        Page page = pages[slot >>> PAGE_BITS];
+        int i = slot & PAGE_MASK;
+        while (true) {
+            int count = (int) INTS.getVolatile(page.pins, i);
+            if (count == CLOSED) {
+                return false;
+            }
+            if (INTS.compareAndSet(page.pins, i, count, count + 1)) {
+                break;
+            }
+        }
+        if (OWNERS.getAcquire(page.owner, i) != owner) {
+            unpin(slot);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a pin taken by pin.
+     * @param slot the pinned slot
+     */
+    void unpin(int slot) {
+        INTS.getAndAdd(pages[slot >>> PAGE_BITS].pins, slot & PAGE_MASK, -1);
+    }
+
+    double getPrice(int slot) {
+        return pages[slot >>> PAGE_BITS].price[slot & PAGE_MASK];
+    }
+
+    void setPrice(int slot, double price) {
+        pages[slot >>> PAGE_BITS].price[slot & PAGE_MASK] = price;
+    }
+
+    int getStock(int slot) {
+        return pages[slot >>> PAGE_BITS].stock[slot & PAGE_MASK];
+    }
+
+    void setStock(int slot, int stock) {
+        pages[slot >>> PAGE_BITS].stock[slot & PAGE_MASK] = stock;
+    }
+
+    /**
+     * Adds to the stock of a pinned slot with a compare-and-set loop, so that concurrent adjustments are never lost.
+     * @param slot the pinned slot
+     * @param delta the amount to add, negative to take stock away
+     * @param checkMin true to refuse a change that would take the stock below the min
+     * @param checkMax true to refuse a change that would take the stock above the max
+     * @return true if the stock was changed
+     */
+    boolean adjustStock(int slot, int delta, boolean checkMin, boolean checkMax) {
+        Page page = pages[slot >>> PAGE_BITS];
+        int i = slot & PAGE_MASK;
+        while (true) {
+            int stock = (int) INTS.getVolatile(page.stock, i);
+            long adjusted = (long) stock + delta;
+            if ((checkMin && adjusted < page.min[i]) || (checkMax && adjusted > page.max[i])
+                    || adjusted < Integer.MIN_VALUE || adjusted > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (INTS.compareAndSet(page.stock, i, stock, (int) adjusted)) {
+                return true;
+            }
+        }
+    }
+
+    int getMin(int slot) {
+        return pages[slot >>> PAGE_BITS].min[slot & PAGE_MASK];
+    }
+
+    void setMin(int slot, int min) {
+        pages[slot >>> PAGE_BITS].min[slot & PAGE_MASK] = min;
+    }
+
+    int getMax(int slot) {
+        return pages[slot >>> PAGE_BITS].max[slot & PAGE_MASK];
+    }
+
+    void setMax(int slot, int max) {
+        pages[slot >>> PAGE_BITS].max[slot & PAGE_MASK] = max;
+    }
+
+    /**
+     * Returns the number of parts currently stored.
+     * @return the number of occupied slots
+     */
+    int size() {
+        return highWater - freeCount;
+    }
+
+    /**
+     * Adds up price times stock over every stored part.
+     * @return the total value of the stock on hand
+     */
+    double totalValue() {
+        Page[] snapshot = pages;
+        double total = 0;
+        for (int p = 0; p < snapshot.length; p++) {
+            double[] price = snapshot[p].price;
+            int[] stock = snapshot[p].stock;
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                total += price[i] * stock[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the stock of every stored part.
+     * @return the total number of units on hand
+     */
+    long totalStock() {
+        Page[] snapshot = pages;
+        long total = 0;
+        for (int p = 0; p < snapshot.length; p++) {
+            int[] stock = snapshot[p].stock;
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                total += stock[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Collects the parts whose stock is at or below their min.
+     * @return the low-stock parts in slot order
+     */
+    List<Part> lowStock() {
+        Page[] snapshot = pages;
+        List<Part> found = new ArrayList<>();
+        for (int p = 0; p < snapshot.length; p++) {
+            Page page = snapshot[p];
+            int[] stock = page.stock;
+            int[] min = page.min;
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (stock[i] <= min[i] && page.owner[i] != null) {
+                    found.add(page.owner[i]);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * One fixed-size block of every column.
+     */
+    private static final class Page {
+        final Part[] owner = new Part[PAGE_SIZE];
+        final double[] price = new double[PAGE_SIZE];
+        final int[] stock = new int[PAGE_SIZE];
+        final int[] min = new int[PAGE_SIZE];
+        final int[] max = new int[PAGE_SIZE];
+        /** The number of adjustments in progress on each slot, or CLOSED while the slot is being released. */
+        final int[] pins = new int[PAGE_SIZE];
+    }
+}
@@ -0,0 +1,467 @@
+package Model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Imports parts from CSV into the Inventory.
+ * The input is read as a stream and cut into chunks of rows. The chunks are parsed and validated in parallel, and
+ * then committed in file order: each chunk gets a block of part IDs, its parts are built with their IDs, and they are
+ * added with a single Inventory.addParts call, so the part table sees one change per chunk rather than one per row. Only a bounded number of chunks is in
+ * flight at a time, so memory use does not grow with the size of the file.
+ *
+ * Each line holds one part: type, name, price, stock, min, max and then the machine ID for an in-house part or the
+ * company name for an outsourced part. The type is InHouse or Outsourced (or just I or O), ignoring case. Fields may
+ * be quoted with double quotes, and a double quote inside a quoted field is written twice. A first line whose type
+ * field reads "type" is taken as a header and skipped. Rows are checked against the same rules as the part forms;
+ * rows that fail are rejected and reported without stopping the import.
+ */
+public class PartImporter {
+
+    private static final int MAX_REJECTIONS_KEPT = 1000;
+
+    private int chunkSize = 10000;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Consumer<Progress> progressListener;
+
+    /**
+     * Sets the number of rows parsed and committed together.
+     * @param chunkSize the rows per chunk
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the number of threads that parse chunks.
+     * @param parallelism the number of parsing threads
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets a listener that is given the progress of the import after every committed chunk, on the importing thread.
+     * @param progressListener the listener, or null for none
+     */
+    public void setProgressListener(Consumer<Progress> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Imports the parts in a UTF-8 CSV file.
+     * @param file the file to import
+     * @return the final progress of the import, including the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public Progress importParts(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importParts(reader);
+        }
+    }
+
+    /**
+     * Imports the parts read from a stream of CSV text. The reader is not closed.
+     * @param input the CSV text
+     * @return the final progress of the import, including the rejected rows
+     * @throws IOException if the input cannot be read
+     */
+    public Progress importParts(Reader input) throws IOException {
+        BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "part-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        Tally tally = new Tally();
+        try {
+            long lineNumber = 0;
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(line)) {
+                    firstLine = 2;
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    submit(parsers, inFlight, lines, firstLine, tally);
+                    lines = new ArrayList<>(chunkSize);
+                    firstLine = lineNumber + 1;
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(parsers, inFlight, lines, firstLine, tally);
+            }
+            while (!inFlight.isEmpty()) {
+                commit(inFlight.poll(), tally);
+            }
+            return tally.progress();
+        } finally {
+            for (Future<Chunk> pending : inFlight) {
+                pending.cancel(true);
+            }
+            parsers.shutdownNow();
+        }
+    }
+
+    private void submit(ExecutorService parsers, Deque<Future<Chunk>> inFlight, List<String> lines, long firstLine,
+                        Tally tally) throws IOException {
+        while (inFlight.size() >= parallelism * 2) {
+            commit(inFlight.poll(), tally);
+        }
+        inFlight.add(parsers.submit(() -> parse(lines, firstLine)));
+    }
+
+    private void commit(Future<Chunk> pending, Tally tally) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Part import was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        if (!chunk.accepted.isEmpty()) {
+            int firstId = Inventory.allocatePartIds(chunk.accepted.size());
+            List<Part> parts = new ArrayList<>(chunk.accepted.size());
+            for (int i = 0; i < chunk.accepted.size(); i++) {
+                parts.add(chunk.accepted.get(i).toPart(firstId + i));
+            }
+            Inventory.addParts(parts);
+        }
+        tally.add(chunk);
+        if (progressListener != null) {
+            progressListener.accept(tally.progress());
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        List<String> fields = split(line);
+        return fields != null && !fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("type");
+    }
+
+    /**
+     * Parses and validates one chunk. Runs on a parser thread, so it does not touch the Inventory itself; the parts
+     * are only built once the chunk is committed and their IDs are known.
+     */
+    private static Chunk parse(List<String> lines, long firstLine) {
+        Chunk chunk = new Chunk(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            String reason = parseRow(line, chunk.accepted);
+            if (reason != null) {
+                chunk.rejections.add(new Rejection(firstLine + i, line, reason));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one row and adds it to the list.
+     * @return null if the row was accepted, or the reason it was rejected
+     */
+    private static String parseRow(String line, List<Row> rows) {
+        List<String> fields = split(line);
+        if (fields == null || fields.size() != 7) {
+            return "Row must have 7 fields: type, name, price, stock, min, max and machine ID or company name.";
+        }
+        String type = fields.get(0).trim();
+        boolean inHouse = type.equalsIgnoreCase("InHouse") || type.equalsIgnoreCase("In-House")
+                || type.equalsIgnoreCase("I");
+        boolean outsourced = type.equalsIgnoreCase("Outsourced") || type.equalsIgnoreCase("O");
+        if (!inHouse && !outsourced) {
+            return "Type must be InHouse or Outsourced.";
+        }
+        String name = fields.get(1).trim();
+        String source = fields.get(6).trim();
+        double price;
+        int stock;
+        int min;
+        int max;
+        try {
+            price = Double.parseDouble(fields.get(2).trim());
+            stock = Integer.parseInt(fields.get(3).trim());
+            min = Integer.parseInt(fields.get(4).trim());
+            max = Integer.parseInt(fields.get(5).trim());
+        } catch (NumberFormatException e) {
+            return "Row contains blank fields or invalid values.";
+        }
+        if (name.isEmpty() || source.isEmpty() || Double.isNaN(price) || Double.isInfinite(price)) {
+            return "Row contains blank fields or invalid values.";
+        }
+        if (!Inventory.isMinValid(min, max)) {
+            return "Min must be a number greater than 0 and less than Max.";
+        }
+        if (!Inventory.isInventoryValid(min, max, stock)) {
+            return "Inventory must be a number equal to or between Min and Max";
+        }
+        if (inHouse) {
+            int machineId;
+            try {
+                machineId = Integer.parseInt(source);
+            } catch (NumberFormatException e) {
+                return "Machine ID may only contain numbers.";
+            }
+            rows.add(new Row(name, price, stock, min, max, machineId, null));
+        } else {
+            rows.add(new Row(name, price, stock, min, max, 0, source));
+        }
+        return null;
+    }
+
+    /**
+     * Splits a CSV line into fields.
+     * @return the fields, or null if a quoted field is not closed
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * The result of parsing one chunk.
+     */
+    private static final class Chunk {
+        final int rows;
+        final List<Row> accepted;
+        final List<Rejection> rejections = new ArrayList<>();
+
+        Chunk(int rows) {
+            this.rows = rows;
+            this.accepted = new ArrayList<>(rows);
+        }
+    }
+
+    /**
+     * The values of an accepted row, from which its part is built once it has an ID.
+     */
+    private static final class Row {
+        final String name;
+        final double price;
+        final int stock;
+        final int min;
+        final int max;
+        final int machineId;
+        /** The company name of an outsourced part, or null for an in-house part. */
+        final String companyName;
+
+        Row(String name, double price, int stock, int min, int max, int machineId, String companyName) {
+            this.name = name;
+            this.price = price;
+            this.stock = stock;
+            this.min = min;
+            this.max = max;
+            this.machineId = machineId;
+            this.companyName = companyName;
+        }
+
+        Part toPart(int id) {
+            if (companyName == null) {
+                return new InHouse(id, name, price, stock, min, max, machineId);
+            }
+            return new Outsourced(id, name, price, stock, min, max, companyName);
+        }
+    }
+
+    /**
+     * The running totals of an import. Only used by the importing thread.
+     */
+    private static final class Tally {
+        private final long startNanos = System.nanoTime();
+        private final List<Rejection> rejections = new ArrayList<>();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+
+        void add(Chunk chunk) {
+            rowsRead += chunk.rows;
+            imported += chunk.accepted.size();
+            rejected += chunk.rejections.size();
+            for (Rejection rejection : chunk.rejections) {
+                if (rejections.size() == MAX_REJECTIONS_KEPT) {
+                    break;
+                }
+                rejections.add(rejection);
+            }
+        }
+
+        Progress progress() {
+            return new Progress(rowsRead, imported, rejected, System.nanoTime() - startNanos,
+                    Collections.unmodifiableList(new ArrayList<>(rejections)));
+        }
+    }
+
+    /**
+     * How far an import has got.
+     */
+    public static final class Progress {
+
+        private final long rowsRead;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedNanos;
+        private final List<Rejection> rejections;
+
+        Progress(long rowsRead, long imported, long rejected, long elapsedNanos, List<Rejection> rejections) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+            this.rejections = rejections;
+        }
+
+        /**
+         * Returns the number of rows committed or rejected so far, including blank lines.
+         * @return the rows read
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        /**
+         * Returns the number of parts added to the Inventory so far.
+         * @return the parts imported
+         */
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * Returns the number of rows rejected so far.
+         * @return the rows rejected
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Returns the time since the import started.
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the average throughput of the import so far.
+         * @return the rows read per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the rejected rows, in file order. Only the first 1000 rejections are kept.
+         * @return the rejected rows
+         */
+        public List<Rejection> getRejections() {
+            return rejections;
+        }
+    }
+
+    /**
+     * A row that was not imported, and why.
+     */
+    public static final class Rejection {
+
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        Rejection(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the line number of the row in the input, starting at 1.
+         * @return the line number
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Returns the text of the row.
+         * @return the row
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Returns why the row was rejected.
+         * @return the reason
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+}
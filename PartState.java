@@ -0,0 +1,120 @@
+package Model;
+
+/**
+ * The values of a part at one moment, as held by an InventoryView. Unlike the part itself it never changes.
+ * There is one for every part in the inventory, so it is kept small: the machine ID of an in-house part and the
+ * vendor ID of an outsourced part share one field, and the company name is looked up from the vendor ID.
+ */
+public final class PartState {
+
+    private final Part part;
+    private final int id;
+    private final String name;
+    private final double price;
+    private final int stock;
+    private final int min;
+    private final int max;
+    /** The machine ID of an in-house part, the vendor ID of an outsourced part, and 0 otherwise. */
+    private final int source;
+
+    private PartState(Part part) {
+        this.part = part;
+        this.id = part.getId();
+        this.name = part.getName();
+        this.price = part.getPrice();
+        this.stock = part.getStock();
+        this.min = part.getMin();
+        this.max = part.getMax();
+        if (part instanceof InHouse) {
+            this.source = ((InHouse) part).getMachineId();
+        } else if (part instanceof Outsourced) {
+            this.source = ((Outsourced) part).getVendorId();
+        } else {
+            this.source = 0;
+        }
+    }
+
+    /**
+     * Records the current values of a part.
+     * @param part the part
+     * @return its values
+     */
+    static PartState of(Part part) {
+        return new PartState(part);
+    }
+
+    /**
+     * Returns the part these values were taken from. Its own getters return its current values, which may have
+     * changed since.
+     * @return the part
+     */
+    public Part getPart() {
+        return part;
+    }
+
+    /**
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the price
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the stock
+     */
+    public int getStock() {
+        return stock;
+    }
+
+    /**
+     * @return the min
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * @return the max
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Returns whether the part is made in-house.
+     * @return true for an InHouse part
+     */
+    public boolean isInHouse() {
+        return part instanceof InHouse;
+    }
+
+    /**
+     * Returns the ID of the machine that makes an in-house part.
+     * @return the machine ID, or 0 for a part that is not made in-house
+     */
+    public int getMachineId() {
+        return part instanceof InHouse ? source : 0;
+    }
+
+    /**
+     * Returns the name of the company that supplies an outsourced part.
+     * @return the company name, or null for a part that is not outsourced
+     */
+    public String getCompanyName() {
+        return part instanceof Outsourced ? Vendors.name(source) : null;
+    }
+}
@@ -0,0 +1,378 @@
+package Model;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable list stored as a tree of 32-slot arrays, the structure behind the Inventory's point-in-time views.
+ * A list is built by an Editor, which changes its nodes in place until it is asked for a list; from then on the
+ * nodes that list can see are shared with it and never changed again, and the Editor copies a node, and the path
+ * down to it, the first time it changes it afterwards. Taking a list therefore costs nothing however long the list,
+ * and each change after it copies at most one node per level of the tree, of which a list of ten million has five.
+ *
+ * Elements are stored at fixed positions. Removing one leaves an empty position behind instead of moving every
+ * element after it, and each node counts the elements below it, so the element at an index, or the index of the
+ * element at a position, is found by walking down the tree past the counts. While nothing has been removed, an
+ * index and a position are the same and the walk is skipped. The Editor's compact closes the gaps in one pass.
+ *
+ * @param <T> the type of element
+ */
+final class PersistentVector<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final Node root;
+    private final int shift;
+    private final int positions;
+    private final int size;
+
+    private PersistentVector(Node root, int shift, int positions, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.positions = positions;
+        this.size = size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int position = size == positions ? index : position(root, shift, index);
+        return (T) leaf(root, shift, position)[position & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Walks the leaves in order instead of descending from the root for every element.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Elements<>(root, shift, positions);
+    }
+
+    private static Object[] leaf(Node root, int shift, int position) {
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.slots[(position >>> level) & MASK];
+        }
+        return node.slots;
+    }
+
+    /**
+     * Returns the position of the element at an index, skipping the empty positions.
+     */
+    private static int position(Node root, int shift, int index) {
+        Node node = root;
+        int position = 0;
+        for (int level = shift; level > 0; level -= BITS) {
+            int slot = 0;
+            Node child = (Node) node.slots[0];
+            while (index >= child.count) {
+                index -= child.count;
+                child = (Node) node.slots[++slot];
+            }
+            position |= slot << level;
+            node = child;
+        }
+        int slot = 0;
+        while (node.slots[slot] == null || index-- > 0) {
+            slot++;
+        }
+        return position | slot;
+    }
+
+    /**
+     * Returns the number of elements stored before a position.
+     */
+    private static int rank(Node root, int shift, int position) {
+        Node node = root;
+        int rank = 0;
+        for (int level = shift; level > 0; level -= BITS) {
+            int slot = (position >>> level) & MASK;
+            for (int i = 0; i < slot; i++) {
+                rank += ((Node) node.slots[i]).count;
+            }
+            node = (Node) node.slots[slot];
+        }
+        for (int i = 0, slot = position & MASK; i < slot; i++) {
+            if (node.slots[i] != null) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * A node of the tree, with the number of elements stored below it. The Editor that created a node may change it
+     * until it hands out a list that can see it.
+     */
+    private static final class Node {
+        final Object owner;
+        final Object[] slots;
+        int count;
+
+        Node(Object owner) {
+            this.owner = owner;
+            this.slots = new Object[WIDTH];
+        }
+
+        Node(Object owner, Object[] slots, int count) {
+            this.owner = owner;
+            this.slots = slots;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Visits the elements in order, a leaf at a time, skipping the empty positions.
+     */
+    private static final class Elements<T> implements Iterator<T> {
+        private final Node root;
+        private final int shift;
+        private final int positions;
+        private int next;
+        private Object[] leaf;
+
+        Elements(Node root, int shift, int positions) {
+            this.root = root;
+            this.shift = shift;
+            this.positions = positions;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < positions;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next >= positions) {
+                throw new NoSuchElementException();
+            }
+            T element = (T) leaf[next & MASK];
+            next++;
+            advance();
+            return element;
+        }
+
+        private void advance() {
+            while (next < positions) {
+                if ((next & MASK) == 0 || leaf == null) {
+                    leaf = leaf(root, shift, next);
+                }
+                if (leaf[next & MASK] != null) {
+                    return;
+                }
+                next++;
+            }
+        }
+    }
+
+    /**
+     * A list that can be changed, and from which immutable copies can be taken at any time. An Editor is not safe
+     * to use from more than one thread at once; the lists it hands out are.
+     * Elements are reached by their index, counting only the elements stored, or by their position, which stays the
+     * same when elements before it are removed, until the next compact.
+     *
+     * @param <T> the type of element
+     */
+    static final class Editor<T> implements Iterable<T> {
+
+        private Object owner = new Object();
+        private Node root = new Node(owner);
+        private int shift;
+        private int positions;
+        private int size;
+
+        /**
+         * Returns the number of elements.
+         * @return the size
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the number of positions, including the empty ones left by removed elements.
+         * @return the position one past the last element added
+         */
+        int positions() {
+            return positions;
+        }
+
+        /**
+         * Returns the element at an index.
+         * @param index the index
+         * @return the element
+         */
+        T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return getAt(size == positions ? index : position(root, shift, index));
+        }
+
+        /**
+         * Returns the element at a position.
+         * @param position the position
+         * @return the element, or null if the position is empty
+         */
+        @SuppressWarnings("unchecked")
+        T getAt(int position) {
+            checkPosition(position);
+            return (T) leaf(root, shift, position)[position & MASK];
+        }
+
+        /**
+         * Returns the position of the element at an index.
+         * @param index the index
+         * @return the position
+         */
+        int positionOf(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return size == positions ? index : position(root, shift, index);
+        }
+
+        /**
+         * Returns the index of the element at a position, which is the number of elements stored before it.
+         * @param position the position
+         * @return the index
+         */
+        int indexAt(int position) {
+            checkPosition(position);
+            return size == positions ? position : rank(root, shift, position);
+        }
+
+        /**
+         * Replaces the element at a position that holds one.
+         * @param position the position
+         * @param element the new element, not null
+         */
+        void setAt(int position, T element) {
+            checkPosition(position);
+            Object[] slots = editablePath(position, 0);
+            if (slots[position & MASK] == null) {
+                throw new IllegalArgumentException("Position " + position + " is empty");
+            }
+            slots[position & MASK] = element;
+        }
+
+        /**
+         * Adds an element at the next position.
+         * @param element the element, not null
+         */
+        void add(T element) {
+            if (positions == 1 << (shift + BITS) && shift + BITS < Integer.SIZE) {
+                Node grown = new Node(owner);
+                grown.slots[0] = root;
+                grown.count = root.count;
+                root = grown;
+                shift += BITS;
+            }
+            int position = positions++;
+            editablePath(position, 1)[position & MASK] = element;
+            size++;
+        }
+
+        /**
+         * Removes the element at a position, leaving the position empty.
+         * @param position the position of the element
+         * @return the element removed
+         */
+        @SuppressWarnings("unchecked")
+        T removeAt(int position) {
+            checkPosition(position);
+            if (getAt(position) == null) {
+                throw new IllegalArgumentException("Position " + position + " is empty");
+            }
+            Object[] slots = editablePath(position, -1);
+            T removed = (T) slots[position & MASK];
+            slots[position & MASK] = null;
+            size--;
+            return removed;
+        }
+
+        /**
+         * Moves every element down to close the empty positions, in one pass. The lists handed out before keep
+         * their own copy.
+         * @param moved told the new position of every element, in order
+         */
+        @SuppressWarnings("unchecked")
+        void compact(ObjIntConsumer<T> moved) {
+            Editor<T> compacted = new Editor<>();
+            for (Object element : this) {
+                moved.accept((T) element, compacted.positions);
+                compacted.add((T) element);
+            }
+            owner = compacted.owner;
+            root = compacted.root;
+            shift = compacted.shift;
+            positions = compacted.positions;
+            size = compacted.size;
+        }
+
+        /**
+         * Visits the elements in order. The Editor must not be changed during the visit.
+         * @return the elements
+         */
+        @Override
+        public Iterator<T> iterator() {
+            return new Elements<>(root, shift, positions);
+        }
+
+        /**
+         * Returns an immutable copy of the elements as they are now. Later changes made through the Editor do not
+         * show in it.
+         * @return the elements
+         */
+        PersistentVector<T> snapshot() {
+            owner = new Object();
+            return new PersistentVector<>(root, shift, positions, size);
+        }
+
+        /**
+         * Makes every node on the path to a position the Editor's own, creating missing ones, and adds to the count
+         * of each.
+         * @return the slots of the leaf holding the position
+         */
+        private Object[] editablePath(int position, int countChange) {
+            root = editable(root);
+            root.count += countChange;
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int slot = (position >>> level) & MASK;
+                Node child = (Node) node.slots[slot];
+                child = child == null ? new Node(owner) : editable(child);
+                child.count += countChange;
+                node.slots[slot] = child;
+                node = child;
+            }
+            return node.slots;
+        }
+
+        private Node editable(Node node) {
+            return node.owner == owner ? node : new Node(owner, node.slots.clone(), node.count);
+        }
+
+        private void checkPosition(int position) {
+            if (position < 0 || position >= positions) {
+                throw new IndexOutOfBoundsException("Position " + position + " out of bounds for " + positions);
+            }
+        }
+    }
+}
@@ -2,17 +2,35 @@ package Model;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+
 /**
  * responsible for the creation of Products
  */
 public class Product {
+    private static final VarHandle STOCK;
+
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Product.class, "stock", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private final ObservableList<Part> associatedPartsView = FXCollections.unmodifiableObservableList(associatedParts);
     private int id;
     private String name;
     private double price;
     private int stock;
     private int min;
     private int max;
+    private volatile boolean inInventory;
+    private int position = -1;
+    private volatile double materialCost;
 
     /**
      *Constructor for Product.
@@ -42,7 +60,9 @@ public class Product {
      * Sets the id of the product.
      * @param id The id to set for the product.
      */
-    public void setId(int id){this.id =id;}
+    public void setId(int id){
+        changeField(() -> this.id = id);
+    }
 
     /**
      * Returns the name of the product.
@@ -57,7 +77,7 @@ public class Product {
      * @param name The name to set for the product.
      */
     public void setName(String name) {
-        this.name = name;
+        changeField(() -> this.name = name);
     }
 
     /**
@@ -73,7 +93,7 @@ public class Product {
      * @param price The price to set for the product.
      */
     public void setPrice(double price) {
-        this.price = price;
+        changeField(() -> this.price = price);
     }
 
     /**
@@ -88,7 +108,9 @@ public class Product {
      * Sets the stock of the product.
      * @param stock The stock to set for the product.
      */
-    public void setStock(int stock) { this.stock = stock; }
+    public void setStock(int stock) {
+        changeField(() -> this.stock = stock);
+    }
 
     /**
      * Returns the minimum stock of the product.
@@ -103,7 +125,7 @@ public class Product {
      * @param min The minimum stock to set for the product.
      */
     public void setMin(int min) {
-        this.min = min;
+        changeField(() -> this.min = min);
     }
 
     /**
@@ -119,7 +141,7 @@ public class Product {
      * @param max The maximum stock to set for the product.
      */
     public void setMax(int max) {
-        this.max = max;
+        changeField(() -> this.max = max);
     }
 
     /**
@@ -127,7 +149,15 @@ public class Product {
      * @param part The part to add to the list of associated parts.
      */
     public void addAssociatedParts(Part part){
-        associatedParts.add(part);
+        long started = InventoryMetrics.ADD_ASSOCIATED_PART.start();
+        try {
+            change(() -> associatedParts.add(part), () -> {
+                associatedParts.add(part);
+                associationChanged(part, true);
+            });
+        } finally {
+            InventoryMetrics.ADD_ASSOCIATED_PART.record(started);
+        }
     }
 
     /**
@@ -136,15 +166,28 @@ public class Product {
      * @return true if the removal was successful, false otherwise.
      * */
     public boolean deleteAssociatedPart(Part selectedAssociatedPart){
-       return associatedParts.remove(selectedAssociatedPart);
+        long started = InventoryMetrics.DELETE_ASSOCIATED_PART.start();
+        try {
+            boolean[] removed = new boolean[1];
+            change(() -> removed[0] = associatedParts.remove(selectedAssociatedPart), () -> {
+                removed[0] = associatedParts.remove(selectedAssociatedPart);
+                if (removed[0]) {
+                    associationChanged(selectedAssociatedPart, false);
+                }
+            });
+            return removed[0];
+        } finally {
+            InventoryMetrics.DELETE_ASSOCIATED_PART.record(started);
+        }
     }
 
     /**
-     * Returns a copy of the list of all associated parts.
+     * Returns a read-only view of the list of all associated parts. Use addAssociatedPart and deleteAssociatedPart
+     * to change it.
      * @return An ObservableList containing all the associated parts of the product.
      * */
     public ObservableList<Part> getAllAssociatedParts(){
-        return associatedParts;
+        return associatedPartsView;
     }
 
     /**
@@ -152,7 +195,189 @@ public class Product {
      * @param part The part to be added to the associated parts list.
      * */
     public void  addAssociatedPart(Part part) {
-        associatedParts.add(part);
+        long started = InventoryMetrics.ADD_ASSOCIATED_PART.start();
+        try {
+            change(() -> associatedParts.add(part), () -> {
+                associatedParts.add(part);
+                associationChanged(part, true);
+            });
+        } finally {
+            InventoryMetrics.ADD_ASSOCIATED_PART.record(started);
+        }
+    }
+
+    /**
+     * Atomically adds to the stock of the product, retrying with compare-and-set until no other thread has changed
+     * the stock in between. Does not tell the inventory about the change.
+     * @param delta the amount to add, negative to take stock away
+     * @param checkMin true to refuse a change that would take the stock below the min
+     * @param checkMax true to refuse a change that would take the stock above the max
+     * @return true if the stock was changed, false if it would have broken a limit
+     * */
+    boolean adjustStockAtomically(int delta, boolean checkMin, boolean checkMax) {
+        while (true) {
+            int current = (int) STOCK.getVolatile(this);
+            long adjusted = (long) current + delta;
+            if ((checkMin && adjusted < min) || (checkMax && adjusted > max)
+                    || adjusted < Integer.MIN_VALUE || adjusted > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (STOCK.compareAndSet(this, current, (int) adjusted)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the material cost of the product, the sum of the prices of its associated parts. While the product is
+     * in the inventory this is a cached value that the inventory keeps up to date as part prices and associations
+     * change; otherwise it is computed on each call.
+     * @return The material cost of the product.
+     * */
+    public double getMaterialCost() {
+        return inInventory ? materialCost : CostRollup.materialCost(this);
+    }
+
+    /**
+     * Returns the margin of the product, its price less its material cost.
+     * @return The margin of the product.
+     * */
+    public double getMargin() {
+        return price - getMaterialCost();
+    }
+
+    /**
+     * Stores the cached material cost. Called by the inventory's cost rollup.
+     * @param materialCost the material cost
+     * */
+    void setMaterialCost(double materialCost) {
+        this.materialCost = materialCost;
+    }
+
+    /**
+     * Returns true while the product is in the inventory.
+     * @return true if the product is in the inventory
+     * */
+    boolean inInventory() {
+        return inInventory;
+    }
+
+    /**
+     * Fills the associated parts of a product that is not yet in the inventory in one step, replacing any it has.
+     * Used when loading a snapshot, whose products are built before they are added.
+     * @param parts the associated parts
+     * */
+    void loadAssociatedParts(List<Part> parts) {
+        change(() -> associatedParts.setAll(parts), () -> {
+            throw new IllegalStateException("The product is already in the inventory");
+        });
+    }
+
+    /**
+     * Records whether the product is in the inventory. Called by the Inventory as it adds and removes products.
+     * @param inInventory true if the product has been added to the inventory
+     * */
+    synchronized void setInInventory(boolean inInventory) {
+        this.inInventory = inInventory;
+    }
+
+    /**
+     * Returns the product's position in the inventory's list of products. Only meaningful while the product is in
+     * the inventory.
+     * @return the position
+     * */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * Records the product's position in the inventory's list of products. Called by the Inventory as the list
+     * changes.
+     * @param position the position
+     * */
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Lists another part in place of a part everywhere it appears among the associated parts, without telling the
+     * inventory. Called by the Inventory as it replaces a part, keeping its own indexes up to date as it does.
+     * @param part the part to be replaced
+     * @param replacement the part to list instead
+     * @return the number of listings replaced
+     * */
+    int replaceAssociatedPart(Part part, Part replacement) {
+        int replaced = 0;
+        for (int i = 0; i < associatedParts.size(); i++) {
+            if (associatedParts.get(i) == part) {
+                associatedParts.set(i, replacement);
+                replaced++;
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * Makes a change to the product. A product that is not in the inventory belongs to whoever holds it, so it is
+     * changed under its own monitor only, which the inventory also holds while it adds or removes the product; a
+     * product in the inventory is changed under the inventory's write lock, so no reader of the inventory sees the
+     * change half made.
+     * @param detachedChange makes the change while the product is not in the inventory
+     * @param attachedChange makes the change while the product is in the inventory, and tells the inventory about it
+     * */
+    private void change(Runnable detachedChange, Runnable attachedChange) {
+        synchronized (this) {
+            if (!inInventory) {
+                detachedChange.run();
+                return;
+            }
+        }
+        Inventory.changeProduct(() -> {
+            synchronized (this) {
+                if (!inInventory) {
+                    detachedChange.run();
+                    return;
+                }
+            }
+            attachedChange.run();
+        });
+    }
+
+    /**
+     * Changes a field of the product in the same way as change, telling the inventory about it.
+     * @param write writes the field
+     * */
+    private void changeField(Runnable write) {
+        change(write, () -> {
+            int oldId = id;
+            String oldName = name;
+            write.run();
+            changed(oldId, oldName);
+        });
+    }
+
+    /**
+     * Tells the inventory that a field or the associated parts of this product have changed, if the product is in
+     * the inventory.
+     * @param oldId the ID before the change
+     * @param oldName the name before the change
+     * */
+    private void changed(int oldId, String oldName) {
+        if (inInventory) {
+            Inventory.productChanged(this, oldId, oldName);
+        }
+    }
+
+    /**
+     * Tells the inventory that a part has been added to or removed from this product's associated parts, if the
+     * product is in the inventory, so it can keep track of which products use each part.
+     * @param part the part that was added or removed
+     * @param added true if the part was added
+     * */
+    private void associationChanged(Part part, boolean added) {
+        if (inInventory) {
+            Inventory.associationChanged(this, part, added);
+        }
     }
 
 }
@@ -0,0 +1,130 @@
+package Model;
+
+import java.util.List;
+
+/**
+ * The values of a product at one moment, as held by an InventoryView. Unlike the product itself it never changes.
+ */
+public final class ProductState {
+
+    private final Product product;
+    private final int id;
+    private final String name;
+    private final double price;
+    private final int stock;
+    private final int min;
+    private final int max;
+    private final double materialCost;
+    private final List<Part> associatedParts;
+    private final int[] associatedPartIds;
+
+    private ProductState(Product product) {
+        this.product = product;
+        this.id = product.getId();
+        this.name = product.getName();
+        this.price = product.getPrice();
+        this.stock = product.getStock();
+        this.min = product.getMin();
+        this.max = product.getMax();
+        this.materialCost = product.getMaterialCost();
+        this.associatedParts = List.copyOf(product.getAllAssociatedParts());
+        this.associatedPartIds = new int[associatedParts.size()];
+        for (int i = 0; i < associatedPartIds.length; i++) {
+            associatedPartIds[i] = associatedParts.get(i).getId();
+        }
+    }
+
+    /**
+     * Records the current values of a product.
+     * @param product the product
+     * @return its values
+     */
+    static ProductState of(Product product) {
+        return new ProductState(product);
+    }
+
+    /**
+     * Returns the product these values were taken from. Its own getters return its current values, which may have
+     * changed since.
+     * @return the product
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the price
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the stock
+     */
+    public int getStock() {
+        return stock;
+    }
+
+    /**
+     * @return the min
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * @return the max
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the cost of one of each of the product's associated parts.
+     * @return the material cost
+     */
+    public double getMaterialCost() {
+        return materialCost;
+    }
+
+    /**
+     * Returns the parts that were associated with the product, in order. The parts are the live objects; their
+     * values at the same moment are in the InventoryView's parts.
+     * @return an unmodifiable list of the associated parts
+     */
+    public List<Part> getAssociatedParts() {
+        return associatedParts;
+    }
+
+    /**
+     * Returns the number of associated parts.
+     * @return the count
+     */
+    public int getAssociatedPartCount() {
+        return associatedPartIds.length;
+    }
+
+    /**
+     * Returns the ID an associated part had at the moment the values were taken.
+     * @param index the position of the part among the associated parts
+     * @return the part's ID
+     */
+    public int getAssociatedPartId(int index) {
+        return associatedPartIds[index];
+    }
+}
@@ -0,0 +1,262 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A trigram index over item names and ID digits that answers substring searches.
+ * Every item is given a document number, and each three-character sequence of its lower-cased name and of its ID
+ * is mapped to a sorted posting list of document numbers. A search intersects the posting lists of the term's
+ * trigrams and only checks the surviving candidates, so its cost depends on the matches rather than on the size
+ * of the inventory. Terms of one or two characters have no trigram, so every single character and every pair of
+ * characters is indexed as well, and such a term is looked up as a whole.
+ * @param <T> the type of item being indexed
+ */
+public class SearchIndex<T> {
+
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACT_SIZE = 1024;
+    /** How many documents a search checks between looking for an interrupt. */
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private final IntHashMap<Postings> unigrams = new IntHashMap<>();
+    private final IntHashMap<Postings> bigrams = new IntHashMap<>();
+    private final IntHashMap<Postings> trigrams = new IntHashMap<>();
+    private final Map<T, Integer> docsByItem = new IdentityHashMap<>();
+    private Object[] items = new Object[16];
+    private String[] names = new String[16];
+    private String[] ids = new String[16];
+    private int docCount;
+    private int deadCount;
+
+    /**
+     * Adds an item to the index.
+     * @param item the item to add
+     * @param name the name of the item
+     * @param id the ID of the item
+     */
+    public void add(T item, String name, int id) {
+        if (docsByItem.containsKey(item)) {
+            remove(item);
+        }
+        if (docCount == items.length) {
+            int capacity = docCount << 1;
+            items = Arrays.copyOf(items, capacity);
+            names = Arrays.copyOf(names, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        int doc = docCount++;
+        items[doc] = item;
+        names[doc] = normalize(name);
+        ids[doc] = Integer.toString(id);
+        docsByItem.put(item, doc);
+        indexGrams(doc);
+    }
+
+    /**
+     * Removes an item from the index. The document slot is left as a tombstone and reclaimed once tombstones
+     * make up half of the index.
+     * @param item the item to remove
+     */
+    public void remove(T item) {
+        Integer doc = docsByItem.remove(item);
+        if (doc == null) {
+            return;
+        }
+        items[doc] = null;
+        names[doc] = null;
+        ids[doc] = null;
+        deadCount++;
+        if (docCount >= MIN_COMPACT_SIZE && deadCount * 2 > docCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Finds every item whose lower-cased name or whose ID contains the given term.
+     * @param term the search term
+     * @return the matching items in the order they were added
+     * @throws java.util.concurrent.CancellationException if the calling thread is interrupted during the search
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> search(String term) {
+        String normalized = normalize(term);
+        List<T> found = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            for (int doc = 0; doc < docCount; doc++) {
+                if ((doc & (CANCEL_CHECK_INTERVAL - 1)) == 0) {
+                    checkInterrupted();
+                }
+                if (items[doc] != null) {
+                    found.add((T) items[doc]);
+                }
+            }
+            return found;
+        }
+
+        int gram = Math.min(GRAM, normalized.length());
+        IntHashMap<Postings> postings = postings(gram);
+        int[][] lists = new int[normalized.length() - gram + 1][];
+        int[] sizes = new int[lists.length];
+        int smallest = 0;
+        for (int i = 0; i < lists.length; i++) {
+            Postings gramPostings = postings.get(gramKey(normalized, i, gram));
+            if (gramPostings == null) {
+                return found;
+            }
+            lists[i] = gramPostings.docs;
+            sizes[i] = gramPostings.size;
+            if (sizes[i] < sizes[smallest]) {
+                smallest = i;
+            }
+        }
+
+        int[] candidates = lists[smallest];
+        for (int c = 0; c < sizes[smallest]; c++) {
+            if ((c & (CANCEL_CHECK_INTERVAL - 1)) == 0) {
+                checkInterrupted();
+            }
+            int doc = candidates[c];
+            if (items[doc] == null) {
+                continue;
+            }
+            boolean inAll = true;
+            for (int i = 0; i < lists.length && inAll; i++) {
+                inAll = i == smallest || Arrays.binarySearch(lists[i], 0, sizes[i], doc) >= 0;
+            }
+            if (inAll && matches(doc, normalized)) {
+                found.add((T) items[doc]);
+            }
+        }
+        return found;
+    }
+
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The search was interrupted");
+        }
+    }
+
+    /**
+     * Removes every item from the index.
+     */
+    public void clear() {
+        unigrams.clear();
+        bigrams.clear();
+        trigrams.clear();
+        docsByItem.clear();
+        Arrays.fill(items, 0, docCount, null);
+        Arrays.fill(names, 0, docCount, null);
+        Arrays.fill(ids, 0, docCount, null);
+        docCount = 0;
+        deadCount = 0;
+    }
+
+    /**
+     * Normalizes a name or search term the same way the main screen search does.
+     * @param text the text to normalize
+     * @return the trimmed, lower-cased text
+     */
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private boolean matches(int doc, String term) {
+        return names[doc].contains(term) || ids[doc].contains(term);
+    }
+
+    private void indexGrams(int doc) {
+        indexGrams(doc, names[doc]);
+        indexGrams(doc, ids[doc]);
+    }
+
+    private void indexGrams(int doc, String text) {
+        for (int gram = 1; gram <= GRAM; gram++) {
+            IntHashMap<Postings> postings = postings(gram);
+            for (int i = 0; i + gram <= text.length(); i++) {
+                int key = gramKey(text, i, gram);
+                Postings gramPostings = postings.get(key);
+                if (gramPostings == null) {
+                    gramPostings = new Postings();
+                    postings.put(key, gramPostings);
+                }
+                gramPostings.append(doc);
+            }
+        }
+    }
+
+    private IntHashMap<Postings> postings(int gram) {
+        return gram == 1 ? unigrams : gram == 2 ? bigrams : trigrams;
+    }
+
+    /**
+     * Packs a sequence of one to three characters into an int. Single characters and pairs fit exactly; distinct
+     * trigrams may share a key, which only adds candidates, and those are always checked against the stored text
+     * before being returned.
+     */
+    private static int gramKey(String text, int offset, int gram) {
+        if (gram == 1) {
+            return text.charAt(offset);
+        }
+        if (gram == 2) {
+            return (text.charAt(offset) << 16) | text.charAt(offset + 1);
+        }
+        return (text.charAt(offset) * 31 + text.charAt(offset + 1)) * 31 + text.charAt(offset + 2);
+    }
+
+    /**
+     * Renumbers the live documents densely and rebuilds every posting list without tombstones.
+     */
+    private void compact() {
+        unigrams.clear();
+        bigrams.clear();
+        trigrams.clear();
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (items[doc] != null) {
+                items[live] = items[doc];
+                names[live] = names[doc];
+                ids[live] = ids[doc];
+                docsByItem.put(cast(items[live]), live);
+                live++;
+            }
+        }
+        Arrays.fill(items, live, docCount, null);
+        Arrays.fill(names, live, docCount, null);
+        Arrays.fill(ids, live, docCount, null);
+        docCount = live;
+        deadCount = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            indexGrams(doc);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object item) {
+        return (T) item;
+    }
+
+    /**
+     * A growable, sorted list of document numbers. Documents are numbered in the order they are added, so
+     * appending keeps the list sorted.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void append(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size << 1);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package Model;
+
+/**
+ * A notice from StockAlerts that a part or product has crossed one of its stock thresholds.
+ */
+public class StockAlert {
+
+    /**
+     * The state the item has moved into.
+     */
+    public enum Kind {
+        /** Stock has fallen to or below the item's min and it needs reordering. */
+        LOW,
+        /** Stock has risen to within the configured margin of the item's max. */
+        OVERSTOCK,
+        /** Stock is back between the thresholds. */
+        CLEARED
+    }
+
+    private final Kind kind;
+    private final Part part;
+    private final Product product;
+    private final int stock;
+    private final int min;
+    private final int max;
+
+    StockAlert(Kind kind, Part part, Product product, int stock, int min, int max) {
+        this.kind = kind;
+        this.part = part;
+        this.product = product;
+        this.stock = stock;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Returns the state the item has moved into.
+     * @return the kind of alert
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the part the alert is about.
+     * @return the part, or null if the alert is about a product
+     */
+    public Part getPart() {
+        return part;
+    }
+
+    /**
+     * Returns the product the alert is about.
+     * @return the product, or null if the alert is about a part
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Returns the stock of the item when the alert was raised.
+     * @return the stock
+     */
+    public int getStock() {
+        return stock;
+    }
+
+    /**
+     * Returns the min of the item when the alert was raised.
+     * @return the min
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the max of the item when the alert was raised.
+     * @return the max
+     */
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        String name = part != null ? part.getName() : product.getName();
+        return kind + " " + name + " (stock " + stock + ", min " + min + ", max " + max + ")";
+    }
+}
@@ -0,0 +1,385 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Watches the stock of every part and product against its min and max.
+ * Items are kept in indexed min-heaps ordered by how far their stock is above their min, and by how far it is below
+ * their max, so finding the items that need attention visits only those items and the heap nodes directly beneath
+ * them rather than the whole inventory. The heaps are updated from the Inventory's change events, which the part and
+ * product setters raise, and subscribers are told whenever an item crosses a threshold.
+ * Queries and updates are synchronized on the engine; subscribers are called while the Inventory's write lock is
+ * held, so like InventoryListeners they must return quickly.
+ */
+public class StockAlerts implements InventoryListener, AutoCloseable {
+
+    private final int overstockMargin;
+    private final Map<Object, Entry> entries = new IdentityHashMap<>();
+    private final Heap lowParts = new Heap(true);
+    private final Heap highParts = new Heap(false);
+    private final Heap lowProducts = new Heap(true);
+    private final Heap highProducts = new Heap(false);
+    private final List<Consumer<StockAlert>> subscribers = new CopyOnWriteArrayList<>();
+
+    private StockAlerts(int overstockMargin) {
+        this.overstockMargin = overstockMargin;
+    }
+
+    /**
+     * Starts watching the inventory. The current parts and products are loaded under the Inventory's read lock and
+     * the engine is registered before the lock is released, so no change is missed.
+     * @param overstockMargin how close to its max an item's stock must come to count as overstocked; 0 means at or
+     *                        above the max
+     * @return the running engine
+     */
+    public static StockAlerts start(int overstockMargin) {
+        StockAlerts alerts = new StockAlerts(overstockMargin);
+        Inventory.readState((parts, products) -> {
+            synchronized (alerts) {
+                for (Part part : parts) {
+                    alerts.track(part, null);
+                }
+                for (Product product : products) {
+                    alerts.track(null, product);
+                }
+            }
+            Inventory.addListener(alerts);
+            return null;
+        });
+        return alerts;
+    }
+
+    /**
+     * Stops watching the inventory.
+     */
+    @Override
+    public void close() {
+        Inventory.removeListener(this);
+    }
+
+    /**
+     * Registers a subscriber to be given every later alert.
+     * @param subscriber the subscriber
+     */
+    public void subscribe(Consumer<StockAlert> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Unregisters a subscriber.
+     * @param subscriber the subscriber
+     */
+    public void unsubscribe(Consumer<StockAlert> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Finds the parts whose stock is at or below their min. Takes time in the number of parts found.
+     * @return the low-stock parts, in no particular order
+     */
+    public synchronized List<Part> getLowStockParts() {
+        return collect(lowParts, 0, Part.class);
+    }
+
+    /**
+     * Finds the products whose stock is at or below their min. Takes time in the number of products found.
+     * @return the low-stock products
+     */
+    public synchronized List<Product> getLowStockProducts() {
+        return collect(lowProducts, 0, Product.class);
+    }
+
+    /**
+     * Finds the parts whose stock is within the overstock margin of their max. Takes time in the number of parts
+     * found.
+     * @return the overstocked parts
+     */
+    public synchronized List<Part> getOverstockParts() {
+        return collect(highParts, overstockMargin, Part.class);
+    }
+
+    /**
+     * Finds the products whose stock is within the overstock margin of their max. Takes time in the number of
+     * products found.
+     * @return the overstocked products
+     */
+    public synchronized List<Product> getOverstockProducts() {
+        return collect(highProducts, overstockMargin, Product.class);
+    }
+
+    /**
+     * Finds the parts whose stock is no more than a given amount above their min, for example to reorder ahead of
+     * time. Takes time in the number of parts found.
+     * @param margin how far above the min to look
+     * @return the parts within the margin of their min
+     */
+    public synchronized List<Part> getPartsNearMin(int margin) {
+        return collect(lowParts, margin, Part.class);
+    }
+
+    @Override
+    public synchronized void partAdded(int index, Part part) {
+        track(part, null);
+    }
+
+    @Override
+    public synchronized void partReplaced(int index, Part oldPart, Part newPart) {
+        untrack(oldPart);
+        track(newPart, null);
+    }
+
+    @Override
+    public synchronized void partRemoved(int index, Part part) {
+        untrack(part);
+    }
+
+    @Override
+    public synchronized void partChanged(Part part, int oldId) {
+        Entry entry = entries.get(part);
+        if (entry != null) {
+            update(entry, part.getStock(), part.getMin(), part.getMax());
+        }
+    }
+
+    @Override
+    public synchronized void productAdded(int index, Product product) {
+        track(null, product);
+    }
+
+    @Override
+    public synchronized void productReplaced(int index, Product oldProduct, Product newProduct) {
+        untrack(oldProduct);
+        track(null, newProduct);
+    }
+
+    @Override
+    public synchronized void productRemoved(int index, Product product) {
+        untrack(product);
+    }
+
+    @Override
+    public synchronized void productChanged(Product product, int oldId) {
+        Entry entry = entries.get(product);
+        if (entry != null) {
+            update(entry, product.getStock(), product.getMin(), product.getMax());
+        }
+    }
+
+    private void track(Part part, Product product) {
+        Entry entry = part != null
+                ? new Entry(part, null, part.getStock(), part.getMin(), part.getMax())
+                : new Entry(null, product, product.getStock(), product.getMin(), product.getMax());
+        entries.put(entry.item(), entry);
+        low(entry).add(entry);
+        high(entry).add(entry);
+        entry.kind = classify(entry);
+        if (entry.kind != StockAlert.Kind.CLEARED) {
+            publish(entry);
+        }
+    }
+
+    private void untrack(Object item) {
+        Entry entry = entries.remove(item);
+        if (entry != null) {
+            low(entry).remove(entry);
+            high(entry).remove(entry);
+        }
+    }
+
+    private void update(Entry entry, int stock, int min, int max) {
+        if (entry.stock == stock && entry.min == min && entry.max == max) {
+            return;
+        }
+        entry.stock = stock;
+        entry.min = min;
+        entry.max = max;
+        low(entry).changed(entry);
+        high(entry).changed(entry);
+        StockAlert.Kind kind = classify(entry);
+        if (kind != entry.kind) {
+            entry.kind = kind;
+            publish(entry);
+        }
+    }
+
+    private StockAlert.Kind classify(Entry entry) {
+        if (entry.stock <= entry.min) {
+            return StockAlert.Kind.LOW;
+        }
+        if ((long) entry.max - entry.stock <= overstockMargin) {
+            return StockAlert.Kind.OVERSTOCK;
+        }
+        return StockAlert.Kind.CLEARED;
+    }
+
+    private void publish(Entry entry) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        StockAlert alert = new StockAlert(entry.kind, entry.part, entry.product, entry.stock, entry.min, entry.max);
+        for (Consumer<StockAlert> subscriber : subscribers) {
+            subscriber.accept(alert);
+        }
+    }
+
+    private Heap low(Entry entry) {
+        return entry.part != null ? lowParts : lowProducts;
+    }
+
+    private Heap high(Entry entry) {
+        return entry.part != null ? highParts : highProducts;
+    }
+
+    private static <T> List<T> collect(Heap heap, long limit, Class<T> type) {
+        List<T> found = new ArrayList<>();
+        heap.collect(0, limit, found, type);
+        return found;
+    }
+
+    /**
+     * One watched item and its positions in its two heaps.
+     */
+    private static final class Entry {
+        final Part part;
+        final Product product;
+        int stock;
+        int min;
+        int max;
+        int lowPosition = -1;
+        int highPosition = -1;
+        StockAlert.Kind kind;
+
+        Entry(Part part, Product product, int stock, int min, int max) {
+            this.part = part;
+            this.product = product;
+            this.stock = stock;
+            this.min = min;
+            this.max = max;
+        }
+
+        Object item() {
+            return part != null ? part : product;
+        }
+    }
+
+    /**
+     * A binary min-heap of entries that records each entry's position in the entry itself, so an entry can be
+     * moved or removed without searching for it. A low heap is keyed by stock minus min and a high heap by max
+     * minus stock.
+     */
+    private static final class Heap {
+        private final boolean low;
+        private Entry[] entries = new Entry[16];
+        private int size;
+
+        Heap(boolean low) {
+            this.low = low;
+        }
+
+        void add(Entry entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size] = entry;
+            setPosition(entry, size);
+            siftUp(size++);
+        }
+
+        void remove(Entry entry) {
+            int position = position(entry);
+            if (position < 0) {
+                return;
+            }
+            Entry last = entries[--size];
+            entries[size] = null;
+            setPosition(entry, -1);
+            if (position < size) {
+                entries[position] = last;
+                setPosition(last, position);
+                siftDown(siftUp(position));
+            }
+        }
+
+        void changed(Entry entry) {
+            int position = position(entry);
+            if (position >= 0) {
+                siftDown(siftUp(position));
+            }
+        }
+
+        /**
+         * Adds every entry in the subtree at a position whose key is no more than the limit. A node whose key is
+         * over the limit cannot have qualifying children, so only qualifying nodes and their direct children are
+         * visited.
+         */
+        <T> void collect(int position, long limit, List<T> found, Class<T> type) {
+            if (position >= size || key(entries[position]) > limit) {
+                return;
+            }
+            found.add(type.cast(entries[position].item()));
+            collect(2 * position + 1, limit, found, type);
+            collect(2 * position + 2, limit, found, type);
+        }
+
+        private long key(Entry entry) {
+            return low ? (long) entry.stock - entry.min : (long) entry.max - entry.stock;
+        }
+
+        private int siftUp(int position) {
+            Entry entry = entries[position];
+            long key = key(entry);
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (key(entries[parent]) <= key) {
+                    break;
+                }
+                entries[position] = entries[parent];
+                setPosition(entries[position], position);
+                position = parent;
+            }
+            entries[position] = entry;
+            setPosition(entry, position);
+            return position;
+        }
+
+        private void siftDown(int position) {
+            Entry entry = entries[position];
+            long key = key(entry);
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && key(entries[child + 1]) < key(entries[child])) {
+                    child++;
+                }
+                if (key <= key(entries[child])) {
+                    break;
+                }
+                entries[position] = entries[child];
+                setPosition(entries[position], position);
+                position = child;
+            }
+            entries[position] = entry;
+            setPosition(entry, position);
+        }
+
+        private int position(Entry entry) {
+            return low ? entry.lowPosition : entry.highPosition;
+        }
+
+        private void setPosition(Entry entry, int position) {
+            if (low) {
+                entry.lowPosition = position;
+            } else {
+                entry.highPosition = position;
+            }
+        }
+    }
+}
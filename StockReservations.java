@@ -0,0 +1,247 @@
+package Model;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free stock changes for order processing.
+ * Part.setStock and Product.setStock simply overwrite the stock, so two threads that each read the stock, subtract
+ * an order and write it back can lose one of the orders. The methods here change stock with a compare-and-set loop
+ * instead, so concurrent changes to the same part or product are never lost, and they refuse any change that would
+ * take the stock below the item's min or above its max.
+ *
+ * A reservation takes stock away as soon as it is made, so no other order can be promised the same units, and is
+ * then either committed, which makes it final, or released, which gives the units back.
+ *
+ * Telling the inventory's listeners about every single unit would put every order through the Inventory's write
+ * lock. Instead the items whose stock has changed are collected and their listeners are told once per item shortly
+ * afterwards, or as soon as flush is called.
+ *
+ * Until the listeners are told, a stock change is only in memory: it is not in the inventory's log, so it is lost if
+ * the process dies, and the stock alerts and machine loads do not reflect it yet. A caller that must not report a
+ * change as done before it is durable, such as a request handler answering a client, should call flush for the item
+ * first; flush returns once the listeners have been told and the log has been forced as its fsync policy requires.
+ */
+public class StockReservations {
+
+    private static final int HELD = 0;
+    private static final int COMMITTED = 1;
+    private static final int RELEASED = 2;
+
+    private static final long FLUSH_DELAY_MILLIS = 20;
+
+    private static final Set<Object> changed = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stock-change-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private StockReservations() {
+    }
+
+    /**
+     * Reserves stock of a part in the inventory.
+     * @param part the part
+     * @param quantity the number of units to reserve
+     * @return the reservation, or null if it would take the stock below the part's min or the part is not in the
+     *         inventory
+     */
+    public static Reservation tryReserve(Part part, int quantity) {
+        checkQuantity(quantity);
+        if (!Inventory.adjustPartStock(part, -quantity, true, false)) {
+            return null;
+        }
+        markChanged(part);
+        return new Reservation(part, null, quantity);
+    }
+
+    /**
+     * Reserves stock of a product.
+     * @param product the product
+     * @param quantity the number of units to reserve
+     * @return the reservation, or null if it would take the stock below the product's min
+     */
+    public static Reservation tryReserve(Product product, int quantity) {
+        checkQuantity(quantity);
+        if (!product.adjustStockAtomically(-quantity, true, false)) {
+            return null;
+        }
+        markChanged(product);
+        return new Reservation(null, product, quantity);
+    }
+
+    /**
+     * Makes a reservation final. The units it took stay taken.
+     * @param reservation the reservation
+     * @throws IllegalStateException if the reservation has already been committed or released
+     */
+    public static void commit(Reservation reservation) {
+        if (!reservation.state.compareAndSet(HELD, COMMITTED)) {
+            throw new IllegalStateException("The reservation has already been committed or released");
+        }
+    }
+
+    /**
+     * Gives the units of a reservation back. The units are returned even if the item's max has since been lowered
+     * below the restored stock, since they were never really gone.
+     * @param reservation the reservation
+     * @throws IllegalStateException if the reservation has already been committed or released
+     */
+    public static void release(Reservation reservation) {
+        if (!reservation.state.compareAndSet(HELD, RELEASED)) {
+            throw new IllegalStateException("The reservation has already been committed or released");
+        }
+        if (reservation.part != null) {
+            if (Inventory.adjustPartStock(reservation.part, reservation.quantity, false, false)) {
+                markChanged(reservation.part);
+            }
+        } else {
+            reservation.product.adjustStockAtomically(reservation.quantity, false, false);
+            markChanged(reservation.product);
+        }
+    }
+
+    /**
+     * Adds to or takes away from the stock of a part in the inventory. The change is not
+     * durable until it has been flushed by flush or flush(Part).
+     * @param part the part
+     * @param delta the number of units to add, negative to take units away
+     * @return true if the stock was changed, false if it would have gone below the min or above the max or the part
+     *         is not in the inventory
+     */
+    public static boolean adjustBy(Part part, int delta) {
+        if (!Inventory.adjustPartStock(part, delta, true, true)) {
+            return false;
+        }
+        markChanged(part);
+        return true;
+    }
+
+    /**
+     * Adds to or takes away from the stock of a product. The change is not
+     * durable until it has been flushed by flush or flush(Product).
+     * @param product the product
+     * @param delta the number of units to add, negative to take units away
+     * @return true if the stock was changed, false if it would have gone below the min or above the max
+     */
+    public static boolean adjustBy(Product product, int delta) {
+        if (!product.adjustStockAtomically(delta, true, true)) {
+            return false;
+        }
+        markChanged(product);
+        return true;
+    }
+
+    /**
+     * Tells the inventory's listeners about every stock change made here so far, on the calling thread.
+     */
+    public static void flush() {
+        Iterator<Object> items = changed.iterator();
+        while (items.hasNext()) {
+            Object item = items.next();
+            items.remove();
+            if (item instanceof Part) {
+                Part part = (Part) item;
+                Inventory.partChanged(part, part.getId(), part.getName(), false);
+            } else {
+                Product product = (Product) item;
+                Inventory.productChanged(product, product.getId(), product.getName());
+            }
+        }
+    }
+
+    /**
+     * Tells the inventory's listeners about a stock change to one part, on the calling thread, if it has not been
+     * passed on yet.
+     * @param part the part
+     */
+    public static void flush(Part part) {
+        if (changed.remove(part)) {
+            Inventory.partChanged(part, part.getId(), part.getName(), false);
+        }
+    }
+
+    /**
+     * Tells the inventory's listeners about a stock change to one product, on the calling thread, if it has not been
+     * passed on yet.
+     * @param product the product
+     */
+    public static void flush(Product product) {
+        if (changed.remove(product)) {
+            Inventory.productChanged(product, product.getId(), product.getName());
+        }
+    }
+
+    private static void markChanged(Object item) {
+        changed.add(item);
+        if (flushScheduled.compareAndSet(false, true)) {
+            flusher.schedule(() -> {
+                flushScheduled.set(false);
+                flush();
+            }, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void checkQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive");
+        }
+    }
+
+    /**
+     * Units of one part or product taken out of stock for an order that is not yet final.
+     */
+    public static final class Reservation {
+
+        private final Part part;
+        private final Product product;
+        private final int quantity;
+        private final AtomicInteger state = new AtomicInteger(HELD);
+
+        private Reservation(Part part, Product product, int quantity) {
+            this.part = part;
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        /**
+         * Returns the reserved part.
+         * @return the part, or null if a product was reserved
+         */
+        public Part getPart() {
+            return part;
+        }
+
+        /**
+         * Returns the reserved product.
+         * @return the product, or null if a part was reserved
+         */
+        public Product getProduct() {
+            return product;
+        }
+
+        /**
+         * Returns the number of units reserved.
+         * @return the quantity
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * Returns whether the reservation has been neither committed nor released.
+         * @return true while the reservation is held
+         */
+        public boolean isHeld() {
+            return state.get() == HELD;
+        }
+    }
+}
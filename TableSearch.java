@@ -0,0 +1,135 @@
+package com.example.softwaretry2;
+
+import Model.Inventory;
+import Model.Part;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Shows the items found by the search typed into a search field in a table of parts or products.
+ * While the search field is empty the table shows a sorted view of one of the inventory lists. While a search is
+ * shown it shows a sorted view of a list holding only the items found, so showing a result costs time in the number
+ * of items found rather than in the size of the inventory. The query runs in the background through BackgroundSearch,
+ * so typing never waits for it, and only the result of the latest search is shown; it is run again whenever the
+ * inventory list changes, so the table keeps following the inventory. The selected item stays selected if it is
+ * still shown. The main screen and the product forms differ only in the query they run and whether an empty result
+ * found by pressing Enter is reported. The methods must be called on the JavaFX Application Thread.
+ *
+ * @param <T> the type of item in the table
+ */
+final class TableSearch<T> {
+
+    private final TableView<T> table;
+    private final SortedList<T> allItems;
+    private final ObservableList<T> found = FXCollections.observableArrayList();
+    private final SortedList<T> foundItems;
+    private final BackgroundSearch<List<? extends T>> search;
+    private final Runnable nothingFound;
+    /** Runs the search again when the inventory list changes. Held here because the list only holds it weakly. */
+    private final ListChangeListener<T> rerun;
+    /** The term of the search being shown or run, or null while every item is shown. */
+    private String term;
+    /** Set when a search is made straight away, so an empty result is reported only then and not while typing. */
+    private boolean alertIfNotFound;
+
+    /**
+     * Binds a table to a list and sets up the search over it.
+     * @param table the table to show the items in
+     * @param items the inventory list the table shows
+     * @param query finds the items matching a search term, on a worker thread
+     * @param nothingFound called when a search made straight away finds nothing, or null to report nothing
+     */
+    TableSearch(TableView<T> table, ObservableList<T> items, Function<String, ? extends List<? extends T>> query,
+                Runnable nothingFound) {
+        this.table = table;
+        this.nothingFound = nothingFound;
+        allItems = MainScreenViewController.sortedView(table, items);
+        foundItems = MainScreenViewController.sortedView(table, found);
+        table.setItems(allItems);
+        search = new BackgroundSearch<>(query::apply, this::show);
+        rerun = change -> {
+            if (term != null) {
+                search.search(term);
+            }
+        };
+        items.addListener(new WeakListChangeListener<>(rerun));
+    }
+
+    /**
+     * Searches for a term, or shows every item if the term is empty.
+     * @param term the search term
+     * @param now true to search straight away, for example when Enter is pressed, and false to wait for typing to
+     *            pause
+     */
+    void search(String term, boolean now) {
+        if (term.isEmpty()) {
+            clear();
+            return;
+        }
+        this.term = term;
+        if (now) {
+            alertIfNotFound = nothingFound != null;
+            search.searchNow(term);
+        } else {
+            search.search(term);
+        }
+    }
+
+    /**
+     * Cancels the current search, if any, and shows every item.
+     */
+    void clear() {
+        term = null;
+        alertIfNotFound = false;
+        search.cancel();
+        showItems(allItems);
+        found.clear();
+    }
+
+    /**
+     * Finds the parts whose ID or name contains the search string, matching case and spaces as typed. The search
+     * index ignores case and surrounding spaces, so it finds every such part and possibly more, which are dropped.
+     * @param searchString the search string
+     * @return the parts found
+     */
+    static List<Part> partsContaining(String searchString) {
+        List<Part> partsFound = new ArrayList<>(Inventory.searchParts(searchString));
+        partsFound.removeIf(part -> !String.valueOf(part.getId()).contains(searchString)
+                && !part.getName().contains(searchString));
+        return partsFound;
+    }
+
+    private void show(List<? extends T> result) {
+        T selected = table.getSelectionModel().getSelectedItem();
+        found.setAll(result);
+        showItems(foundItems);
+        reselect(selected);
+        if (alertIfNotFound && result.isEmpty()) {
+            nothingFound.run();
+        }
+        alertIfNotFound = false;
+    }
+
+    private void showItems(SortedList<T> items) {
+        if (table.getItems() == items) {
+            return;
+        }
+        T selected = table.getSelectionModel().getSelectedItem();
+        table.setItems(items);
+        reselect(selected);
+    }
+
+    private void reselect(T item) {
+        if (item != null && table.getSelectionModel().getSelectedItem() != item && table.getItems().contains(item)) {
+            table.getSelectionModel().select(item);
+        }
+    }
+}
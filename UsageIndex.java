@@ -0,0 +1,85 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps a part ID to the products that use a part with that ID, the reverse of Product.getAllAssociatedParts.
+ * A product that lists the same part more than once is counted once per listing, so removing one listing leaves it
+ * in the index until the last is gone. Each part keeps an identity map from its products to their listing counts,
+ * so checking whether a part is used takes one hash lookup, adding or removing a listing takes constant time however
+ * many products use the part, and listing its users costs time in the number of users rather than in the number of
+ * products in the inventory.
+ * Not thread-safe; the Inventory only uses it while holding its lock.
+ */
+class UsageIndex {
+
+    private final IntHashMap<Map<Product, Integer>> usersByPart = new IntHashMap<>();
+
+    /**
+     * Records that a product lists a part.
+     * @param partId the ID of the part
+     * @param product the product that lists it
+     */
+    void add(int partId, Product product) {
+        Map<Product, Integer> users = usersByPart.get(partId);
+        if (users == null) {
+            users = new IdentityHashMap<>();
+            usersByPart.put(partId, users);
+        }
+        users.merge(product, 1, Integer::sum);
+    }
+
+    /**
+     * Records that a product no longer lists a part once.
+     * @param partId the ID of the part
+     * @param product the product that listed it
+     */
+    void remove(int partId, Product product) {
+        Map<Product, Integer> users = usersByPart.get(partId);
+        if (users != null) {
+            users.computeIfPresent(product, (listed, listings) -> listings == 1 ? null : listings - 1);
+            if (users.isEmpty()) {
+                usersByPart.remove(partId);
+            }
+        }
+    }
+
+    /**
+     * Returns whether any product lists a part with the given ID.
+     * @param partId the ID of the part
+     * @return true if the part is used
+     */
+    boolean isUsed(int partId) {
+        return usersByPart.containsKey(partId);
+    }
+
+    /**
+     * Returns the number of distinct products that list a part with the given ID.
+     * @param partId the ID of the part
+     * @return the number of products
+     */
+    int count(int partId) {
+        Map<Product, Integer> users = usersByPart.get(partId);
+        return users == null ? 0 : users.size();
+    }
+
+    /**
+     * Returns the distinct products that list a part with the given ID.
+     * @param partId the ID of the part
+     * @return a new list of the products, in no particular order
+     */
+    List<Product> products(int partId) {
+        Map<Product, Integer> users = usersByPart.get(partId);
+        return users == null ? new ArrayList<>(0) : new ArrayList<>(users.keySet());
+    }
+
+    /**
+     * Removes every entry.
+     */
+    void clear() {
+        usersByPart.clear();
+    }
+}
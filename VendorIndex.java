@@ -0,0 +1,92 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maps a vendor ID to the outsourced parts in the inventory that come from that vendor, so the parts of one company
+ * can be found, counted and changed in time proportional to how many there are, without looking at any other part.
+ * Each part remembers the vendor it is filed under, so a part whose company name has changed can be moved without
+ * searching for it.
+ * Not thread-safe; the Inventory only uses it while holding its lock.
+ */
+class VendorIndex {
+
+    private final IntHashMap<Set<Outsourced>> partsByVendor = new IntHashMap<>();
+
+    /**
+     * Files a part under its vendor.
+     * @param part the part
+     */
+    void add(Outsourced part) {
+        int vendorId = part.getVendorId();
+        if (vendorId != Vendors.NONE) {
+            Set<Outsourced> parts = partsByVendor.get(vendorId);
+            if (parts == null) {
+                parts = new HashSet<>();
+                partsByVendor.put(vendorId, parts);
+            }
+            parts.add(part);
+        }
+        part.setIndexedVendorId(vendorId);
+    }
+
+    /**
+     * Takes a part out from under the vendor it was filed under.
+     * @param part the part
+     */
+    void remove(Outsourced part) {
+        int vendorId = part.getIndexedVendorId();
+        Set<Outsourced> parts = partsByVendor.get(vendorId);
+        if (parts != null && parts.remove(part) && parts.isEmpty()) {
+            partsByVendor.remove(vendorId);
+        }
+        part.setIndexedVendorId(Vendors.NONE);
+    }
+
+    /**
+     * Moves a part whose company name may have changed to its current vendor.
+     * @param part the part
+     */
+    void update(Outsourced part) {
+        if (part.getIndexedVendorId() != part.getVendorId()) {
+            remove(part);
+            add(part);
+        }
+    }
+
+    /**
+     * Returns the number of parts from a vendor.
+     * @param vendorId the vendor ID
+     * @return the number of parts
+     */
+    int count(int vendorId) {
+        Set<Outsourced> parts = partsByVendor.get(vendorId);
+        return parts == null ? 0 : parts.size();
+    }
+
+    /**
+     * Returns the parts from a vendor.
+     * @param vendorId the vendor ID
+     * @return a new list of the parts, in the order of the inventory's list of parts
+     */
+    List<Outsourced> parts(int vendorId) {
+        Set<Outsourced> parts = partsByVendor.get(vendorId);
+        List<Outsourced> found = new ArrayList<>(parts == null ? List.of() : parts);
+        found.sort(Comparator.comparingInt(Part::getPosition));
+        return found;
+    }
+
+    /**
+     * Returns the vendors that at least one part comes from.
+     * @return a new list of the vendor IDs, in no particular order
+     */
+    List<Integer> vendors() {
+        List<Integer> vendors = new ArrayList<>(partsByVendor.size());
+        partsByVendor.forEachKey(vendors::add);
+        return vendors;
+    }
+}
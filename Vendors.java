@@ -0,0 +1,76 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The supplier dimension: interns the company names of outsourced parts, giving each distinct name a small vendor
+ * ID. An Outsourced part stores the ID instead of its own copy of the name, so a thousand parts from one company
+ * share one String, and the Inventory's VendorIndex files parts under the ID.
+ * IDs are handed out in order from 0 and a name keeps its ID for the life of the program; names are never removed,
+ * as a company that supplies no part today is likely to supply one again. Safe to use from any thread: looking up a
+ * name that has been seen before takes no lock.
+ */
+final class Vendors {
+
+    /** The vendor ID of a part with no company name. */
+    static final int NONE = -1;
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];
+    private static int count;
+
+    private Vendors() {
+    }
+
+    /**
+     * Returns the vendor ID of a company name, giving the name a new ID the first time it is seen.
+     * @param name the company name, or null
+     * @return the vendor ID, or NONE for null
+     */
+    static int intern(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Returns the vendor ID of a company name without giving it one.
+     * @param name the company name, or null
+     * @return the vendor ID, or NONE if no part has ever had the name
+     */
+    static int find(String name) {
+        Integer id = name == null ? null : ids.get(name);
+        return id != null ? id : NONE;
+    }
+
+    /**
+     * Returns the company name of a vendor ID.
+     * @param id the vendor ID
+     * @return the shared copy of the name, or null for NONE
+     */
+    static String name(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    /**
+     * Stores the name before its ID is published in the map, so a thread that finds the ID also finds the name.
+     */
+    private static synchronized int add(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, count * 2);
+        }
+        current[count] = name;
+        names = current;
+        ids.put(name, count);
+        return count++;
+    }
+}
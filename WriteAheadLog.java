@@ -0,0 +1,325 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of inventory changes, split into numbered segment files.
+ * Each record is framed as its length, a type byte, the payload and a CRC32 of the type and payload, so a record
+ * that was only partly written before a crash is detected and ignored on replay. A new segment is started every time
+ * a snapshot is taken, and segments older than the latest snapshot can then be deleted.
+ * Forcing the log to disk is kept apart from appending to it: appends never wait for the disk, and one force covers
+ * every record appended before it, so threads that need their records on disk at the same time share a single force.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    /**
+     * When appended records are forced to disk.
+     */
+    public enum FsyncPolicy {
+        /** Every record is written when it is appended, and forced to disk before commit returns. */
+        ALWAYS,
+        /** Records are buffered and a background thread writes and forces them at a fixed interval. */
+        INTERVAL,
+        /** Every record is handed to the operating system right away, but never explicitly forced to disk. */
+        NEVER
+    }
+
+    /**
+     * Receives the records of a segment during replay.
+     */
+    public interface RecordHandler {
+        /**
+         * Handles one record.
+         * @param type the type byte of the record
+         * @param payload the payload of the record
+         * @throws IOException if the payload cannot be decoded
+         */
+        void handle(byte type, byte[] payload) throws IOException;
+    }
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_SIZE = Integer.BYTES + 1;
+    private static final int MAX_RECORD_SIZE = 64 << 20;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final ScheduledExecutorService flusher;
+    private final CRC32 crc = new CRC32();
+    /** Held while forcing, and taken before the log's own monitor when both are needed. */
+    private final Object forceLock = new Object();
+    private ByteBuffer buffer = ByteBuffer.allocate(64 << 10);
+    private FileChannel channel;
+    private long generation;
+    /** The number of records appended so far. Guarded by the log's monitor. */
+    private long appended;
+    /** The number of records appended before the latest force. Guarded by forceLock. */
+    private long forced;
+
+    /**
+     * Opens a log that appends to a new segment with the given generation number.
+     * @param directory the directory holding the segments
+     * @param generation the generation number of the first segment to write
+     * @param policy when records are forced to disk
+     * @param intervalMillis how often buffered records are written and forced under the INTERVAL policy
+     * @throws IOException if the segment cannot be created
+     */
+    public WriteAheadLog(Path directory, long generation, FsyncPolicy policy, long intervalMillis) throws IOException {
+        this.directory = directory;
+        this.policy = policy;
+        Files.createDirectories(directory);
+        openSegment(generation);
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "inventory-wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Appends a record to the current segment. Under the ALWAYS and NEVER policies the record is written to the
+     * segment straight away, but it is only forced to disk by commit or flush.
+     * @param type the type byte of the record
+     * @param payload the payload bytes
+     * @param length the number of payload bytes to write
+     */
+    public synchronized void append(byte type, byte[] payload, int length) {
+        int size = HEADER_SIZE + length + Integer.BYTES;
+        if (buffer.remaining() < size) {
+            writeBuffer();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+        crc.reset();
+        crc.update(type);
+        crc.update(payload, 0, length);
+        buffer.putInt(length).put(type).put(payload, 0, length).putInt((int) crc.getValue());
+        appended++;
+        if (policy != FsyncPolicy.INTERVAL) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Makes the records appended so far as durable as the policy promises: under the ALWAYS policy they are forced
+     * to disk before this returns, and under the others nothing is done. Records appended by other threads while
+     * this waits for the disk are not held up, and are covered by the next force.
+     */
+    public void commit() {
+        if (policy == FsyncPolicy.ALWAYS) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes any buffered records and forces them to disk. Returns at once if a force by another thread has already
+     * covered them.
+     */
+    public void flush() {
+        synchronized (forceLock) {
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                writeBuffer();
+                target = appended;
+                current = channel;
+            }
+            if (target == forced) {
+                return;
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not force the inventory log to disk", e);
+            }
+            forced = target;
+        }
+    }
+
+    /**
+     * Finishes the current segment and starts a new one.
+     * @param newGeneration the generation number of the new segment
+     * @throws IOException if the new segment cannot be created
+     */
+    public void rotate(long newGeneration) throws IOException {
+        synchronized (forceLock) {
+            synchronized (this) {
+                finishSegment();
+                openSegment(newGeneration);
+            }
+        }
+    }
+
+    /**
+     * Returns the generation number of the segment being written.
+     * @return the current generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Deletes every segment older than the given generation.
+     * @param directory the directory holding the segments
+     * @param generation the oldest generation to keep
+     * @throws IOException if a segment cannot be deleted
+     */
+    public static void deleteBefore(Path directory, long generation) throws IOException {
+        for (long older : generations(directory)) {
+            if (older < generation) {
+                Files.deleteIfExists(segment(directory, older));
+            }
+        }
+    }
+
+    /**
+     * Lists the generation numbers of the segments in a directory, oldest first.
+     * @param directory the directory holding the segments
+     * @return the generation numbers in ascending order
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Long> generations(Path directory) throws IOException {
+        List<Long> found = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return found;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            found.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            // not one of ours
+                        }
+                    });
+        }
+        found.sort(null);
+        return found;
+    }
+
+    /**
+     * Replays the records of one segment in order. Replay stops quietly at the first incomplete or corrupt record,
+     * which can only be the tail of a segment that was being written when the process stopped.
+     * @param directory the directory holding the segments
+     * @param generation the generation number of the segment
+     * @param handler receives each record
+     * @return the number of records replayed
+     * @throws IOException if the segment cannot be read or a record cannot be handled
+     */
+    public static int replay(Path directory, long generation, RecordHandler handler) throws IOException {
+        int count = 0;
+        CRC32 check = new CRC32();
+        try (InputStream file = Files.newInputStream(segment(directory, generation));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length;
+                byte type;
+                byte[] payload;
+                int expected;
+                try {
+                    length = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        return count;
+                    }
+                    type = in.readByte();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    expected = in.readInt();
+                } catch (EOFException e) {
+                    return count;
+                }
+                check.reset();
+                check.update(type);
+                check.update(payload);
+                if ((int) check.getValue() != expected) {
+                    return count;
+                }
+                handler.handle(type, payload);
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Writes and forces any buffered records, stops the background flusher and closes the segment.
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (forceLock) {
+            synchronized (this) {
+                finishSegment();
+            }
+        }
+    }
+
+    /**
+     * Writes, forces and closes the current segment. Must hold forceLock and the log's monitor.
+     */
+    private void finishSegment() throws IOException {
+        writeBuffer();
+        if (forced != appended) {
+            channel.force(false);
+            forced = appended;
+        }
+        channel.close();
+    }
+
+    private void openSegment(long newGeneration) throws IOException {
+        generation = newGeneration;
+        channel = FileChannel.open(segment(directory, newGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static Path segment(Path directory, long generation) {
+        return directory.resolve(String.format("%s%019d%s", PREFIX, generation, SUFFIX));
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the inventory log", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            // the next append or flush reports the failure to its caller
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.softwaretry2.benchmarks;
+
+import Model.Inventory;
+import Model.InHouse;
+import Model.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleting parts. A part is added back straight after it is deleted, so the inventory keeps its size for the whole
+ * run. A delete leaves an empty position behind and the list is compacted once those outnumber the parts, so the
+ * cost of a delete should not grow with the size of the inventory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class DeleteBenchmark {
+
+    private final Part missing = new InHouse(-1, "Missing", 1, 1, 1, 2, 1);
+
+    @Benchmark
+    public boolean deleteAndAddBack(InventoryState state, ThreadCursor cursor) {
+        Part part = state.unusedParts[cursor.next() % state.unusedParts.length];
+        boolean deleted = Inventory.deletePart(part);
+        Inventory.addPart(part);
+        return deleted;
+    }
+
+    @Benchmark
+    public boolean deleteByIdAndAddBack(InventoryState state, ThreadCursor cursor) {
+        Part part = state.unusedParts[cursor.next() % state.unusedParts.length];
+        boolean deleted = Inventory.deletePartById(part.getId());
+        Inventory.addPart(part);
+        return deleted;
+    }
+
+    /**
+     * Deleting a part that is not in the inventory, which should be refused without searching for it.
+     */
+    @Benchmark
+    public boolean deleteMissing() {
+        return Inventory.deletePart(missing);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.softwaretry2.benchmarks;
+
+import Model.InHouse;
+import Model.Inventory;
+import Model.Outsourced;
+import Model.Part;
+import Model.Product;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills the Inventory with a generated population of parts and products before a trial.
+ * There is one product for every ten parts, each listing three to five parts, and a set share of the parts are
+ * in-house, the rest outsourced from one of a few dozen companies. Part names are built from a small vocabulary and a
+ * number, so names repeat across parts the way they do in a real catalogue. The population depends only on the
+ * parameters, so every run measures the same inventory.
+ */
+@State(Scope.Benchmark)
+public class InventoryState {
+
+    /** The number of names a lookup or search picks from, so the JIT cannot fold a single constant. */
+    static final int SAMPLES = 4096;
+
+    private static final String[] NOUNS = {
+        "Bolt", "Nut", "Washer", "Gear", "Spring", "Bearing", "Bracket", "Hinge", "Valve", "Gasket",
+        "Pulley", "Sprocket", "Chain", "Cable", "Spoke", "Rim", "Pedal", "Crank", "Saddle", "Brake"
+    };
+    private static final String[] SIZES = {"M3", "M4", "M5", "M6", "M8", "M10", "M12", "Small", "Large", "XL"};
+    private static final int COMPANIES = 40;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int parts;
+
+    @Param({"50"})
+    public int inHousePercent;
+
+    /** IDs of parts in the inventory. */
+    int[] partIds;
+    /** IDs of products in the inventory. */
+    int[] productIds;
+    /** Names of parts in the inventory. */
+    String[] partNames;
+    /** Parts that no product lists, so they can be deleted without touching any product. */
+    Part[] unusedParts;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        SplittableRandom random = new SplittableRandom(parts * 31L + inHousePercent);
+        Inventory.deleteProducts(Inventory.getProductsSnapshot());
+        Inventory.deleteParts(Inventory.getPartsSnapshot());
+
+        int firstPartId = Inventory.allocatePartIds(parts);
+        List<Part> newParts = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            newParts.add(newPart(firstPartId + i, random));
+        }
+        Inventory.addParts(newParts);
+
+        int productCount = Math.max(1, parts / 10);
+        int firstProductId = Inventory.allocateProductIds(productCount);
+        boolean[] used = new boolean[parts];
+        List<Product> newProducts = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            int max = 50 + random.nextInt(200);
+            Product product = new Product(firstProductId + i, NOUNS[random.nextInt(NOUNS.length)] + " Assembly " + i,
+                    10 + random.nextInt(1000), 1 + random.nextInt(max - 1), 1, max);
+            int listed = 3 + random.nextInt(3);
+            for (int j = 0; j < listed; j++) {
+                int part = random.nextInt(parts);
+                used[part] = true;
+                product.addAssociatedPart(newParts.get(part));
+            }
+            newProducts.add(product);
+        }
+        Inventory.addProducts(newProducts);
+        // build the deferred search indexes now rather than inside the first measured search
+        Inventory.searchParts("x");
+        Inventory.searchProducts("x");
+
+        partIds = new int[SAMPLES];
+        productIds = new int[SAMPLES];
+        partNames = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            Part part = newParts.get(random.nextInt(parts));
+            partIds[i] = part.getId();
+            partNames[i] = part.getName();
+            productIds[i] = newProducts.get(random.nextInt(productCount)).getId();
+        }
+        List<Part> unused = new ArrayList<>();
+        for (int i = 0; i < parts && unused.size() < SAMPLES; i++) {
+            if (!used[i]) {
+                unused.add(newParts.get(i));
+            }
+        }
+        unusedParts = unused.toArray(new Part[0]);
+    }
+
+    private Part newPart(int id, SplittableRandom random) {
+        String name = NOUNS[random.nextInt(NOUNS.length)] + " " + SIZES[random.nextInt(SIZES.length)] + "-"
+                + random.nextInt(Math.max(10, parts / 100));
+        double price = 0.05 + random.nextInt(10000) / 100.0;
+        int max = 100 + random.nextInt(900);
+        int min = 1 + random.nextInt(50);
+        int stock = min + random.nextInt(max - min + 1);
+        if (random.nextInt(100) < inHousePercent) {
+            return new InHouse(id, name, price, stock, min, max, 1 + random.nextInt(500));
+        }
+        return new Outsourced(id, name, price, stock, min, max, "Supplier " + random.nextInt(COMPANIES));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.softwaretry2.benchmarks;
+
+import Model.Inventory;
+import Model.Part;
+import Model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding parts and products by ID and by name, as the screens, the importer and the HTTP service do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class LookupBenchmark {
+
+    private final Inventory inventory = new Inventory();
+
+    @Benchmark
+    public Part lookupPartById(InventoryState state, ThreadCursor cursor) {
+        return inventory.lookupPart(state.partIds[cursor.next()]);
+    }
+
+    @Benchmark
+    public Product lookupProductById(InventoryState state, ThreadCursor cursor) {
+        return inventory.lookupProduct(state.productIds[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<Part> lookupPartsByName(InventoryState state, ThreadCursor cursor) {
+        return Inventory.lookupPartsByName(state.partNames[cursor.next()], false);
+    }
+
+    @Benchmark
+    public List<Part> lookupPartsByNameIgnoringCase(InventoryState state, ThreadCursor cursor) {
+        return Inventory.lookupPartsByName(state.partNames[cursor.next()].toUpperCase(), true);
+    }
+
+    /**
+     * The ObservableList form the screens use, to show what wrapping the result adds.
+     */
+    @Benchmark
+    public List<Part> lookupPartObservable(InventoryState state, ThreadCursor cursor) {
+        return Inventory.lookupPart(state.partNames[cursor.next()]);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.softwaretry2.benchmarks;
+
+import Model.Inventory;
+import Model.Part;
+import Model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The searches behind the main screen's search fields, which match the term anywhere in a name or ID ignoring case.
+ * A narrow term matches a handful of items, a broad one a large share of the inventory, so the cost of building the
+ * result shows up separately from the cost of finding it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class SearchBenchmark {
+
+    @Benchmark
+    public List<Part> searchPartsByFullName(InventoryState state, ThreadCursor cursor) {
+        return Inventory.searchParts(state.partNames[cursor.next()].toLowerCase());
+    }
+
+    @Benchmark
+    public List<Part> searchPartsByIdFragment(InventoryState state, ThreadCursor cursor) {
+        String id = Integer.toString(state.partIds[cursor.next()]);
+        return Inventory.searchParts(id.substring(0, Math.min(4, id.length())));
+    }
+
+    @Benchmark
+    public List<Part> searchPartsBroad() {
+        return Inventory.searchParts("bolt");
+    }
+
+    @Benchmark
+    public List<Product> searchProductsByName() {
+        return Inventory.searchProducts("gear assembly 1");
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.softwaretry2.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Walks each benchmark thread through the sample IDs and names of an InventoryState in turn.
+ */
+@State(Scope.Thread)
+public class ThreadCursor {
+
+    private int position;
+
+    /**
+     * Returns the next sample position.
+     * @return a position below InventoryState.SAMPLES
+     */
+    int next() {
+        position = (position + 1) & (InventoryState.SAMPLES - 1);
+        return position;
+    }
+}
@@ -0,0 +1,240 @@
+package Model;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the slot and position bookkeeping of FxMirrorList. The JavaFX runtime is not started, so every publish
+ * applies the queued changes on the calling thread.
+ */
+class FxMirrorListTest {
+
+    private FxMirrorList<String> list;
+    /** What the list should hold, changed the plain way alongside it. */
+    private List<String> expected;
+    /** The position of every update, as published. */
+    private List<Integer> updated;
+    /** The position of every item removed, as published. */
+    private List<Integer> removed;
+    private int added;
+
+    @BeforeEach
+    void setUp() {
+        list = new FxMirrorList<>();
+        list.startMirroring(List.of());
+        expected = new ArrayList<>();
+        updated = new ArrayList<>();
+        removed = new ArrayList<>();
+        list.addListener((ListChangeListener<String>) change -> {
+            while (change.next()) {
+                if (change.wasUpdated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        updated.add(i);
+                    }
+                } else if (change.wasRemoved()) {
+                    // removals next to each other may come as one change
+                    for (int i = 0; i < change.getRemovedSize(); i++) {
+                        removed.add(change.getFrom());
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    void appendsInOrder() {
+        addItems(100);
+        assertContents();
+    }
+
+    @Test
+    void removalKeepsTheItemsAfterItInOrder() {
+        addItems(10);
+        remove(3);
+        remove(3);
+        remove(7);
+        assertContents();
+        assertEquals(List.of(3, 3, 7), removed);
+    }
+
+    @Test
+    void updatesArePublishedAtThePositionAfterRemovals() {
+        addItems(40);
+        // the first update builds the slot map, so later removals must keep it in step
+        update(expected.get(0));
+        remove(5);
+        remove(0);
+        remove(20);
+        String item = expected.get(30);
+        update(item);
+        assertEquals(List.of(0, 30), updated);
+        assertContents();
+    }
+
+    @Test
+    void updateOfARemovedItemIsDropped() {
+        addItems(5);
+        String item = expected.get(2);
+        remove(2);
+        update(item);
+        assertEquals(List.of(), updated);
+    }
+
+    @Test
+    void updateFindsItemsAddedAfterRemovals() {
+        addItems(20);
+        update(expected.get(1));
+        remove(1);
+        remove(4);
+        addItems(3);
+        String last = expected.get(expected.size() - 1);
+        update(last);
+        assertEquals(List.of(1, expected.size() - 1), updated);
+        assertContents();
+    }
+
+    @Test
+    void emptySlotsAreSqueezedOutOnceTheyOutnumberTheItems() {
+        addItems(64);
+        update(expected.get(0));
+        // once more than half the slots are empty the items are moved down and the slot map rebuilt
+        for (int i = 0; i < 40; i++) {
+            remove(i % expected.size());
+        }
+        assertContents();
+        String item = expected.get(expected.size() / 2);
+        update(item);
+        assertEquals(expected.size() / 2, updated.get(updated.size() - 1));
+    }
+
+    @Test
+    void insertionBeforeTheEndMovesTheItemsAfterIt() {
+        addItems(10);
+        update(expected.get(0));
+        remove(2);
+        remove(6);
+        String inserted = "inserted";
+        list.queueAdd(4, inserted);
+        expected.add(4, inserted);
+        list.publish();
+        assertContents();
+        update(inserted);
+        update(expected.get(7));
+        assertEquals(List.of(0, 4, 7), updated);
+    }
+
+    @Test
+    void removeAllReportsEachItemAtItsPositionAfterTheRemovalsBeforeIt() {
+        addItems(10);
+        remove(0);
+        removed.clear();
+        list.queueRemoveAll(new int[] {1, 2, 5, 8});
+        list.publish();
+        for (int index : new int[] {8, 5, 2, 1}) {
+            expected.remove(index);
+        }
+        assertEquals(List.of(1, 1, 3, 5), removed);
+        assertContents();
+    }
+
+    @Test
+    void setReplacesTheItemAtThePositionAfterRemovals() {
+        addItems(10);
+        update(expected.get(0));
+        remove(1);
+        String replacement = "replacement";
+        list.queueSet(5, replacement);
+        String replaced = expected.set(5, replacement);
+        list.publish();
+        assertContents();
+        update(replaced);
+        update(replacement);
+        assertEquals(List.of(0, 5), updated);
+    }
+
+    @Test
+    void randomChangesMatchAPlainList() {
+        Random random = new Random(42);
+        int next = 0;
+        for (int round = 0; round < 2000; round++) {
+            int choice = random.nextInt(10);
+            if (expected.isEmpty() || choice < 4) {
+                String item = "item " + next++;
+                int index = random.nextInt(5) == 0 ? random.nextInt(expected.size() + 1) : expected.size();
+                list.queueAdd(index, item);
+                expected.add(index, item);
+            } else if (choice < 8) {
+                int index = random.nextInt(expected.size());
+                list.queueRemove(index);
+                expected.remove(index);
+            } else {
+                int index = random.nextInt(expected.size());
+                list.publish();
+                updated.clear();
+                list.queueUpdate(expected.get(index));
+                list.publish();
+                assertEquals(List.of(index), updated);
+            }
+            if (random.nextInt(3) == 0) {
+                list.publish();
+                assertContents();
+            }
+        }
+        list.publish();
+        assertContents();
+    }
+
+    @Test
+    void cannotBeChangedDirectly() {
+        addItems(3);
+        assertThrows(UnsupportedOperationException.class, () -> list.add("outside"));
+        assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> list.set(0, "outside"));
+    }
+
+    @Test
+    void nothingIsQueuedBeforeMirroringStarts() {
+        FxMirrorList<String> idle = new FxMirrorList<>();
+        idle.queueAdd(0, "ignored");
+        idle.publish();
+        assertEquals(0, idle.size());
+        idle.startMirroring(List.of("a", "b"));
+        assertEquals(List.of("a", "b"), new ArrayList<>(idle));
+    }
+
+    private void addItems(int count) {
+        for (int i = 0; i < count; i++) {
+            String item = "item " + added++;
+            list.queueAdd(expected.size(), item);
+            expected.add(item);
+        }
+        list.publish();
+    }
+
+    private void remove(int index) {
+        list.queueRemove(index);
+        expected.remove(index);
+        list.publish();
+    }
+
+    private void update(String item) {
+        list.queueUpdate(item);
+        list.publish();
+    }
+
+    private void assertContents() {
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i), "item " + i);
+        }
+        assertEquals(expected, new ArrayList<>(list));
+    }
+}
@@ -0,0 +1,146 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that removing a key from an IntHashMap shifts the rest of its probe run back, so every other key can still
+ * be found without tombstones.
+ */
+class IntHashMapTest {
+
+    /** The slot mask of a map made with the default capacity, which holds up to 16 entries before it grows. */
+    private static final int DEFAULT_MASK = 31;
+
+    @Test
+    void removingTheHeadOfAProbeRunKeepsTheRestReachable() {
+        List<Integer> keys = keysWithHome(7, 4);
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int key : keys) {
+            map.put(key, "v" + key);
+        }
+        assertEquals("v" + keys.get(0), map.remove(keys.get(0)));
+        for (int key : keys.subList(1, keys.size())) {
+            assertEquals("v" + key, map.get(key));
+        }
+        assertFalse(map.containsKey(keys.get(0)));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void entriesInTheirHomeSlotAreNotShiftedIntoTheGap() {
+        // a takes slot 7, b slot 8 which is its home, and c, also at home in 7, is pushed on to slot 9
+        int a = keysWithHome(7, 1).get(0);
+        int b = keysWithHome(8, 1).get(0);
+        int c = keysWithHome(7, 2).get(1);
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(a, "a");
+        map.put(b, "b");
+        map.put(c, "c");
+        map.remove(a);
+        assertEquals("b", map.get(b));
+        assertEquals("c", map.get(c));
+        map.remove(b);
+        assertEquals("c", map.get(c));
+        assertNull(map.get(a));
+        assertNull(map.get(b));
+    }
+
+    @Test
+    void probeRunsThatWrapPastTheEndOfTheTableShiftBack() {
+        List<Integer> last = keysWithHome(DEFAULT_MASK, 3);
+        int first = keysWithHome(0, 1).get(0);
+        IntHashMap<String> map = new IntHashMap<>();
+        for (int key : last) {
+            map.put(key, "v" + key);
+        }
+        // the run now fills slots 31, 0 and 1, so this key lands in slot 2
+        map.put(first, "first");
+        map.remove(last.get(0));
+        map.remove(last.get(1));
+        assertEquals("v" + last.get(2), map.get(last.get(2)));
+        assertEquals("first", map.get(first));
+        map.remove(last.get(2));
+        assertEquals("first", map.get(first));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void removeWithValueOnlyRemovesThatValue() {
+        IntHashMap<String> map = new IntHashMap<>();
+        String value = "value";
+        map.put(1, value);
+        assertFalse(map.remove(1, "other"));
+        assertTrue(map.containsKey(1));
+        assertTrue(map.remove(1, value));
+        assertFalse(map.containsKey(1));
+        assertFalse(map.remove(1, value));
+    }
+
+    @Test
+    void nullValuesAreRejected() {
+        IntHashMap<String> map = new IntHashMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    void randomChangesMatchAHashMap() {
+        Random random = new Random(11);
+        IntHashMap<Integer> map = new IntHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int round = 0; round < 100_000; round++) {
+            // a narrow key range keeps the table crowded, with long probe runs
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, round), map.put(key, round));
+            }
+            if (round % 10_000 == 0) {
+                assertSameEntries(expected, map);
+            }
+        }
+        assertSameEntries(expected, map);
+        Set<Integer> keys = new HashSet<>();
+        map.forEachKey(keys::add);
+        assertEquals(expected.keySet(), keys);
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(keys.iterator().next()));
+    }
+
+    private static void assertSameEntries(Map<Integer, Integer> expected, IntHashMap<Integer> map) {
+        assertEquals(expected.size(), map.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(expected.get(key), map.get(key), "key " + key);
+        }
+    }
+
+    /**
+     * Finds keys that a map made with the default capacity puts in the given slot when it is free, using the same
+     * hash as the map.
+     */
+    private static List<Integer> keysWithHome(int slot, int count) {
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 0; keys.size() < count; key++) {
+            int h = key * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & DEFAULT_MASK) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
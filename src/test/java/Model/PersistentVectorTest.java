@@ -0,0 +1,171 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the lists handed out by a PersistentVector.Editor never see the changes made after them, and that
+ * positions and indexes stay in step across removals.
+ */
+class PersistentVectorTest {
+
+    @Test
+    void snapshotKeepsItsElementsWhenTheEditorChangesThem() {
+        PersistentVector.Editor<Integer> editor = filled(100);
+        PersistentVector<Integer> before = editor.snapshot();
+        editor.setAt(10, -10);
+        editor.removeAt(50);
+        editor.add(100);
+        assertEquals(range(100), before);
+        assertEquals(-10, editor.get(10));
+        assertEquals(99, editor.get(98));
+        assertEquals(100, editor.size());
+    }
+
+    @Test
+    void changesAfterASnapshotDoNotShowInIt() {
+        PersistentVector.Editor<Integer> editor = filled(40);
+        PersistentVector<Integer> first = editor.snapshot();
+        // the first change after a snapshot copies the path; the next ones change the copy in place
+        editor.setAt(0, -1);
+        editor.setAt(1, -2);
+        editor.setAt(33, -3);
+        PersistentVector<Integer> second = editor.snapshot();
+        editor.setAt(0, -4);
+        assertEquals(range(40), first);
+        assertEquals(-1, second.get(0));
+        assertEquals(-2, second.get(1));
+        assertEquals(-3, second.get(33));
+        assertEquals(-4, editor.get(0));
+    }
+
+    @Test
+    void snapshotsSurviveTheTreeGrowingTaller() {
+        PersistentVector.Editor<Integer> editor = new PersistentVector.Editor<>();
+        List<PersistentVector<Integer>> snapshots = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        // 32 elements fill the root leaf, and 1024 fill two levels
+        for (int i = 0; i < 1100; i++) {
+            editor.add(i);
+            if (i == 31 || i == 32 || i == 1023 || i == 1024 || i == 1099) {
+                snapshots.add(editor.snapshot());
+                sizes.add(i + 1);
+            }
+        }
+        editor.setAt(0, -1);
+        editor.setAt(1050, -1);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(range(sizes.get(i)), snapshots.get(i));
+        }
+    }
+
+    @Test
+    void removalLeavesTheOtherPositionsInPlace() {
+        PersistentVector.Editor<Integer> editor = filled(100);
+        assertEquals(5, editor.removeAt(5));
+        assertEquals(70, editor.removeAt(70));
+        assertEquals(98, editor.size());
+        assertEquals(100, editor.positions());
+        assertNull(editor.getAt(5));
+        assertEquals(71, editor.getAt(71));
+        assertEquals(71, editor.positionOf(69));
+        assertEquals(69, editor.indexAt(71));
+        assertEquals(6, editor.get(5));
+        assertThrows(IllegalArgumentException.class, () -> editor.removeAt(5));
+        assertThrows(IllegalArgumentException.class, () -> editor.setAt(5, 0));
+    }
+
+    @Test
+    void snapshotSkipsEmptyPositions() {
+        PersistentVector.Editor<Integer> editor = filled(2000);
+        List<Integer> expected = range(2000);
+        for (int position = 1999; position >= 0; position -= 3) {
+            editor.removeAt(position);
+            expected.remove(position);
+        }
+        PersistentVector<Integer> snapshot = editor.snapshot();
+        assertEquals(expected.size(), snapshot.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), snapshot.get(i));
+        }
+        assertEquals(expected, new ArrayList<>(snapshot));
+    }
+
+    @Test
+    void compactMovesElementsDownAndKeepsEarlierSnapshots() {
+        PersistentVector.Editor<Integer> editor = filled(100);
+        for (int position = 0; position < 100; position += 2) {
+            editor.removeAt(position);
+        }
+        PersistentVector<Integer> before = editor.snapshot();
+        List<Integer> moved = new ArrayList<>();
+        editor.compact((element, position) -> {
+            assertEquals(moved.size(), position);
+            moved.add(element);
+        });
+        assertEquals(50, editor.size());
+        assertEquals(50, editor.positions());
+        assertEquals(new ArrayList<>(before), moved);
+        for (int position = 0; position < 50; position++) {
+            assertEquals(2 * position + 1, editor.getAt(position));
+        }
+        editor.setAt(0, -1);
+        assertEquals(1, before.get(0));
+    }
+
+    @Test
+    void randomChangesMatchAPlainList() {
+        Random random = new Random(7);
+        PersistentVector.Editor<Integer> editor = new PersistentVector.Editor<>();
+        List<Integer> expected = new ArrayList<>();
+        List<PersistentVector<Integer>> snapshots = new ArrayList<>();
+        List<List<Integer>> copies = new ArrayList<>();
+        for (int round = 0; round < 5000; round++) {
+            int choice = random.nextInt(10);
+            if (expected.isEmpty() || choice < 5) {
+                editor.add(round);
+                expected.add(round);
+            } else if (choice < 7) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), editor.removeAt(editor.positionOf(index)));
+            } else if (choice < 9) {
+                int index = random.nextInt(expected.size());
+                editor.setAt(editor.positionOf(index), -round);
+                expected.set(index, -round);
+            } else {
+                snapshots.add(editor.snapshot());
+                copies.add(new ArrayList<>(expected));
+            }
+            if (round % 1000 == 999) {
+                editor.compact((element, position) -> { });
+            }
+        }
+        assertEquals(expected, new ArrayList<>(editor.snapshot()));
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(copies.get(i), snapshots.get(i));
+        }
+    }
+
+    private static PersistentVector.Editor<Integer> filled(int count) {
+        PersistentVector.Editor<Integer> editor = new PersistentVector.Editor<>();
+        for (int i = 0; i < count; i++) {
+            editor.add(i);
+        }
+        return editor;
+    }
+
+    private static List<Integer> range(int count) {
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            elements.add(i);
+        }
+        return elements;
+    }
+}
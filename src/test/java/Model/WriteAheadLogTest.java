@@ -0,0 +1,155 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the framing of WriteAheadLog records: what is appended is replayed as it was, and replay stops at the first
+ * record that was cut short or damaged.
+ */
+class WriteAheadLogTest {
+
+    /** The length, the type byte and the CRC framing every record. */
+    private static final int FRAME_SIZE = Integer.BYTES + 1 + Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReplayedAsAppended() throws IOException {
+        List<byte[]> payloads = List.of(new byte[0], bytes("part"), new byte[200_000], bytes("product"));
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, WriteAheadLog.FsyncPolicy.ALWAYS, 0)) {
+            byte type = 1;
+            for (byte[] payload : payloads) {
+                log.append(type++, payload, payload.length);
+            }
+            log.commit();
+        }
+        List<Byte> types = new ArrayList<>();
+        List<byte[]> replayed = new ArrayList<>();
+        int count = WriteAheadLog.replay(directory, 1, (type, payload) -> {
+            types.add(type);
+            replayed.add(payload);
+        });
+        assertEquals(payloads.size(), count);
+        assertEquals(List.of((byte) 1, (byte) 2, (byte) 3, (byte) 4), types);
+        for (int i = 0; i < payloads.size(); i++) {
+            assertArrayEquals(payloads.get(i), replayed.get(i));
+        }
+        long size = 0;
+        for (byte[] payload : payloads) {
+            size += FRAME_SIZE + payload.length;
+        }
+        assertEquals(size, Files.size(segment(1)));
+    }
+
+    @Test
+    void onlyTheGivenLengthOfThePayloadIsWritten() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, WriteAheadLog.FsyncPolicy.NEVER, 0)) {
+            log.append((byte) 5, bytes("abcdef"), 3);
+        }
+        List<byte[]> replayed = replayAll(1);
+        assertEquals(1, replayed.size());
+        assertArrayEquals(bytes("abc"), replayed.get(0));
+    }
+
+    @Test
+    void bufferedRecordsAreWrittenOnClose() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, WriteAheadLog.FsyncPolicy.INTERVAL, 60_000)) {
+            for (int i = 0; i < 1000; i++) {
+                log.append((byte) 1, bytes("record " + i), bytes("record " + i).length);
+            }
+        }
+        assertEquals(1000, replayAll(1).size());
+    }
+
+    @Test
+    void replayStopsAtARecordCutShort() throws IOException {
+        writeRecords(3);
+        byte[] file = Files.readAllBytes(segment(1));
+        // every cut inside the last record leaves the first two
+        int lastStart = file.length - (FRAME_SIZE + bytes("record 2").length);
+        for (int cut = lastStart; cut < file.length; cut++) {
+            Files.write(segment(1), Arrays.copyOf(file, cut));
+            assertEquals(2, replayAll(1).size(), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void replayStopsAtADamagedRecord() throws IOException {
+        writeRecords(3);
+        byte[] file = Files.readAllBytes(segment(1));
+        int secondStart = FRAME_SIZE + bytes("record 0").length;
+        // the type byte, a payload byte and a CRC byte of the second record
+        for (int offset : new int[] {4, 6, FRAME_SIZE + bytes("record 1").length - 1}) {
+            byte[] damaged = file.clone();
+            damaged[secondStart + offset] ^= 0x40;
+            Files.write(segment(1), damaged);
+            List<byte[]> replayed = replayAll(1);
+            assertEquals(1, replayed.size(), "damage at " + offset);
+            assertArrayEquals(bytes("record 0"), replayed.get(0));
+        }
+    }
+
+    @Test
+    void replayStopsAtAnImpossibleLength() throws IOException {
+        writeRecords(2);
+        byte[] file = Files.readAllBytes(segment(1));
+        for (int length : new int[] {-1, Integer.MAX_VALUE}) {
+            ByteBuffer tail = ByteBuffer.allocate(file.length + FRAME_SIZE);
+            tail.put(file).putInt(length).put((byte) 1).putInt(0);
+            Files.write(segment(1), tail.array());
+            assertEquals(2, replayAll(1).size(), "length " + length);
+        }
+    }
+
+    @Test
+    void rotateStartsANewSegment() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, WriteAheadLog.FsyncPolicy.NEVER, 0)) {
+            log.append((byte) 1, bytes("first"), 5);
+            log.rotate(2);
+            log.append((byte) 1, bytes("second"), 6);
+            assertEquals(2, log.getGeneration());
+        }
+        assertEquals(List.of(1L, 2L), WriteAheadLog.generations(directory));
+        assertArrayEquals(bytes("first"), replayAll(1).get(0));
+        assertArrayEquals(bytes("second"), replayAll(2).get(0));
+        WriteAheadLog.deleteBefore(directory, 2);
+        assertEquals(List.of(2L), WriteAheadLog.generations(directory));
+    }
+
+    private void writeRecords(int count) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, WriteAheadLog.FsyncPolicy.NEVER, 0)) {
+            for (int i = 0; i < count; i++) {
+                byte[] payload = bytes("record " + i);
+                log.append((byte) 1, payload, payload.length);
+            }
+        }
+    }
+
+    private List<byte[]> replayAll(long generation) throws IOException {
+        List<byte[]> replayed = new ArrayList<>();
+        WriteAheadLog.replay(directory, generation, (type, payload) -> replayed.add(payload));
+        return replayed;
+    }
+
+    private Path segment(long generation) {
+        return directory.resolve(String.format("wal-%019d.log", generation));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}